@@ -2,21 +2,28 @@ package com.photobooth;
 
 import com.photobooth.model.Photo;
 import com.photobooth.model.Theme;
+import com.photobooth.service.HotFolderWatcher;
+import com.photobooth.service.PhotoImporter;
 import com.photobooth.service.PhotoManager;
 import com.photobooth.service.PrintService;
+import com.photobooth.service.TaskExecutors;
 import com.photobooth.ui.PhotoGalleryView;
 import com.photobooth.ui.PrintPreviewDialog;
 import com.photobooth.ui.ThemeSelectorPanel;
+import com.photobooth.util.ParallelPixelExecutor;
+import com.photobooth.util.RenderSpill;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import static com.photobooth.util.Constants.*;
@@ -25,11 +32,15 @@ import static com.photobooth.util.Constants.*;
 public class PhotoBoothApp extends Application {
 
     private PhotoManager photoManager;
+    private PhotoImporter photoImporter;
+    private PhotoImporter.ImportJob currentImport;
+    private HotFolderWatcher hotFolderWatcher;
 
     private PhotoGalleryView galleryView;
     private ThemeSelectorPanel themeSelectorPanel;
 
     private Button uploadButton;
+    private ToggleButton hotFolderButton;
     private Button printButton;
     private Button clearButton;
     private Label statusLabel;
@@ -55,8 +66,18 @@ public class PhotoBoothApp extends Application {
         updateUIState();
     }
 
+    @Override
+    public void stop() {
+        hotFolderWatcher.stop();
+        TaskExecutors.shutdown();
+        ParallelPixelExecutor.shutdown();
+    }
+
     private void initializeServices() {
+        RenderSpill.clean();
         photoManager = new PhotoManager();
+        photoImporter = new PhotoImporter(photoManager);
+        hotFolderWatcher = new HotFolderWatcher(photoManager, photoImporter);
         System.out.println("Photo Booth initialized");
         System.out.println("Printer available: " + PrintService.isPrinterAvailable());
         if (PrintService.isPrinterAvailable()) {
@@ -97,7 +118,26 @@ public class PhotoBoothApp extends Application {
                 "-fx-font-size: 14px; " +
                         "-fx-padding: 10px 20px;"
         );
-        uploadButton.setOnAction(e -> handleUpload());
+        uploadButton.setOnAction(e -> {
+            if (currentImport != null) {
+                cancelImport();
+            } else {
+                handleUpload();
+            }
+        });
+
+        hotFolderButton = new ToggleButton("📂 Hot Folder");
+        hotFolderButton.setStyle(
+                "-fx-font-size: 14px; " +
+                        "-fx-padding: 10px 20px;"
+        );
+        hotFolderButton.setOnAction(e -> {
+            if (hotFolderButton.isSelected()) {
+                startHotFolder();
+            } else {
+                hotFolderWatcher.stop();
+            }
+        });
 
         printButton = new Button("🖨 Print");
         printButton.setStyle(
@@ -132,6 +172,7 @@ public class PhotoBoothApp extends Application {
 
         toolbar.getChildren().addAll(
                 uploadButton,
+                hotFolderButton,
                 printButton,
                 clearButton,
                 spacer,
@@ -168,22 +209,117 @@ public class PhotoBoothApp extends Application {
         List<File> selectedFiles = fileChooser.showOpenMultipleDialog(primaryStage);
 
         if (selectedFiles != null && !selectedFiles.isEmpty()) {
-            int count = photoManager.addPhotos(selectedFiles);
+            startImport(selectedFiles);
+        }
+    }
 
-            galleryView.refresh();
+    private void startImport(List<File> files) {
+        uploadButton.setText("✖ Cancel Import");
+        statusLabel.setText("Importing " + files.size() + " photo(s)...");
+
+        currentImport = photoImporter.importFiles(files, new PhotoImporter.ImportListener() {
+            private int duplicates;
+            private int similar;
+
+            @Override
+            public void onPhotoImported(Photo photo, int completed, int total) {
+                if (photo.getSimilarPhoto() != null) {
+                    similar++;
+                    statusLabel.setText("Importing " + completed + " of " + total +
+                            " (" + photo.getFileName() + " looks like " + photo.getSimilarPhoto().getFileName() + ")");
+                } else {
+                    statusLabel.setText("Importing " + completed + " of " + total + "...");
+                }
+            }
 
-            statusLabel.setText("Loaded " + count + " photo(s)");
+            @Override
+            public void onImportFailed(File file, String reason, int completed, int total) {
+                statusLabel.setText("Importing " + completed + " of " + total +
+                        " (skipped " + file.getName() + ")");
+            }
 
-            if (count > 0) {
-                showInfo("Photos Loaded",
-                        "Successfully loaded " + count + " photo(s).");
+            @Override
+            public void onDuplicateSkipped(File file, Photo existing, int completed, int total) {
+                duplicates++;
+                statusLabel.setText("Importing " + completed + " of " + total +
+                        " (" + file.getName() + " duplicates " + existing.getFileName() + ")");
             }
 
-            updateUIState();
+            @Override
+            public void onImportFinished(int imported, int failed, boolean cancelled) {
+                currentImport = null;
+                uploadButton.setText("📁 Upload Photos");
+
+                String summary = "Loaded " + imported + " photo(s)" +
+                        (failed > 0 ? ", " + failed + " failed" : "") +
+                        (duplicates > 0 ? ", " + duplicates + " duplicate(s) skipped" : "") +
+                        (similar > 0 ? ", " + similar + " possible duplicate(s) flagged for review" : "") +
+                        (cancelled ? " (import cancelled)" : "");
+                statusLabel.setText(summary);
+
+                if (imported > 0 && !cancelled) {
+                    showInfo("Photos Loaded", summary + ".");
+                }
+
+                updateUIState();
+            }
+        });
+    }
+
+    private void cancelImport() {
+        if (currentImport != null) {
+            currentImport.cancel();
         }
     }
 
 
+    private void startHotFolder() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Hot Folder");
+
+        File directory = directoryChooser.showDialog(primaryStage);
+        if (directory == null) {
+            hotFolderButton.setSelected(false);
+            return;
+        }
+
+        try {
+            hotFolderWatcher.start(directory.toPath(), new HotFolderWatcher.HotFolderListener() {
+                @Override
+                public void onPhotoImported(Photo photo) {
+                    statusLabel.setText("Hot folder: added " + photo.getFileName() +
+                            (photo.getSimilarPhoto() != null
+                                    ? " (looks like " + photo.getSimilarPhoto().getFileName() + ", check for a duplicate)"
+                                    : ""));
+                    updateUIState();
+                }
+
+                @Override
+                public void onImportFailed(File file, String reason) {
+                    statusLabel.setText("Hot folder: skipped " + file.getName() + " (" + reason + ")");
+                }
+
+                @Override
+                public void onDuplicateSkipped(File file, Photo existing) {
+                    statusLabel.setText("Hot folder: skipped " + file.getName() +
+                            " (same file as " + existing.getFileName() + ")");
+                }
+
+                @Override
+                public void onWatchStopped(String reason) {
+                    if (!hotFolderWatcher.isWatching()) {
+                        hotFolderButton.setSelected(false);
+                        statusLabel.setText(reason);
+                    }
+                }
+            });
+            statusLabel.setText("Watching " + directory.getAbsolutePath());
+        } catch (IOException e) {
+            hotFolderButton.setSelected(false);
+            showError("Hot Folder", "Cannot watch " + directory.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
     private void handlePrint() {
         if (!photoManager.hasSelection()) {
             showWarning("No Photo Selected", "Please select a photo to print.");
@@ -243,8 +379,9 @@ public class PhotoBoothApp extends Application {
 
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
+                themeSelectorPanel.cancelRender();
+                cancelImport();
                 photoManager.clearAll();
-                galleryView.refresh();
                 statusLabel.setText("All photos cleared");
                 updateUIState();
             }
@@ -261,8 +398,6 @@ public class PhotoBoothApp extends Application {
 
 
     private void onThemeApplied(Theme theme, Photo photo) {
-        galleryView.updatePhoto(photo);
-
         statusLabel.setText("Theme '" + theme.getName() + "' applied to " + photo.getFileName());
 
         updateUIState();
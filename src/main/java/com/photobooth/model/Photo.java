@@ -1,33 +1,97 @@
 package com.photobooth.model;
 
+import com.photobooth.util.ImageMetadata;
+import com.photobooth.util.ImageUtils;
+import com.photobooth.util.JpegExifReader;
+import com.photobooth.util.PerceptualHash;
+import com.photobooth.util.PhotoPixelStore;
+import com.photobooth.util.RenderSpill;
+import com.photobooth.util.ThumbnailDiskCache;
 import javafx.scene.image.Image;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.zip.CRC32C;
 
 public class Photo {
 
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+    private static final long UNREADABLE = -1;
+    private static final AtomicReferenceFieldUpdater<Photo, Thumbnail> THUMBNAIL =
+            AtomicReferenceFieldUpdater.newUpdater(Photo.class, Thumbnail.class, "thumbnail");
+
     private final String id;
     private final File sourceFile;
-    private final Image originalImage;
-    private Image processedImage;;
+    private volatile Image processedImage;
+    private volatile File processedFile;
+    private volatile Thumbnail thumbnail;
+    private int width;
+    private int height;
+    private int orientation;
+    private volatile long perceptualHash;
+    private volatile boolean perceptualHashed;
+    private final long contentLength;
+    private volatile long contentHash;
+    private volatile boolean contentHashed;
+    private Photo similarPhoto;
     private final LocalDateTime uploadAt;
-    private Theme appliedTheme;;
+    private Theme appliedTheme;
     private String fileName;
 
     public Photo(File sourceFile, Image originalImage){
         this.id = generateId();
         this.sourceFile = sourceFile;
-        this.originalImage = originalImage;
-        this.processedImage = originalImage;
+        this.processedImage = null;
+        this.width = (int) originalImage.getWidth();
+        this.height = (int) originalImage.getHeight();
+        this.orientation = JpegExifReader.ORIENTATION_NORMAL;
+        this.contentLength = sourceFile.length();
         this.uploadAt = LocalDateTime.now();
         this.fileName = sourceFile.getName();
         this.appliedTheme = null;
+        PhotoPixelStore.put(id, originalImage);
+    }
+
+    // A photo that starts from a thumbnail and header size; the full image is decoded on first use.
+    public Photo(File sourceFile, Image embeddedThumbnail, int width, int height, int orientation){
+        this.id = generateId();
+        this.sourceFile = sourceFile;
+        this.processedImage = null;
+        this.thumbnail = embeddedThumbnail != null ? new Thumbnail(embeddedThumbnail, null) : null;
+        this.width = width;
+        this.height = height;
+        this.orientation = orientation;
+        this.contentLength = sourceFile.length();
+        this.uploadAt = LocalDateTime.now();
+        this.fileName = sourceFile.getName();
+        this.appliedTheme = null;
+    }
+
+    public Photo(File sourceFile, ImageMetadata metadata){
+        this(sourceFile, null, metadata.getWidth(), metadata.getHeight(), metadata.getOrientation());
+    }
+
+    // A thumbnail together with the processed image or spill file it was shrunk from, null for
+    // the source, so one made from a render that has since been replaced is recognisably stale.
+    private static final class Thumbnail {
+        private final Image image;
+        private final Object basis;
+
+        Thumbnail(Image image, Object basis) {
+            this.image = image;
+            this.basis = basis;
+        }
     }
 
     private String generateId(){
-        return "PHOTO_" + System.currentTimeMillis() + "_" + (int) (Math.random() * 1000);
+        return "PHOTO_" + System.currentTimeMillis() + "_" + ID_SEQUENCE.incrementAndGet();
     }
 
     public String getId(){
@@ -38,15 +102,49 @@ public class Photo {
         return sourceFile;
     }
 
-    public Image getOriginalImage(){
-        return originalImage;
+    // Originals live in PhotoPixelStore and are re-decoded from the source file after eviction.
+    public synchronized Image getOriginalImage(){
+        Image original = PhotoPixelStore.get(id);
+        if (original == null) {
+            original = ImageUtils.loadImage(sourceFile);
+            if (original != null) {
+                width = (int) original.getWidth();
+                height = (int) original.getHeight();
+                original = PhotoPixelStore.put(id, original);
+            }
+        }
+        return original;
     }
 
-    public Image getProcessedImage(){
-        return processedImage;
+    // A heap copy for the render pipeline; in off-heap mode it is copied straight from the direct buffer.
+    public synchronized BufferedImage getOriginalRaster(){
+        BufferedImage raster = PhotoPixelStore.getRaster(id);
+        if (raster == null) {
+            Image original = getOriginalImage();
+            raster = original != null ? ImageUtils.toRaster(original) : null;
+        }
+        return raster;
     }
 
+    // Also deletes a spilled render; called once the photo has left the session.
+    public void releasePixels(){
+        PhotoPixelStore.remove(id);
+        RenderSpill.discard(processedFile);
+    }
 
+    public int getOrientation(){
+        return orientation;
+    }
+
+    // A spilled render is read back through PhotoPixelStore, so it may be re-read after eviction.
+    public Image getProcessedImage(){
+        Image processed = processedImage;
+        if (processed != null) {
+            return processed;
+        }
+        File file = processedFile;
+        return file != null ? RenderSpill.read(file) : null;
+    }
 
     public LocalDateTime getUploadedAt(){
         return uploadAt;
@@ -65,15 +163,171 @@ public class Photo {
     }
 
     public Image getCurrentImage(){
-        return processedImage != null ? processedImage : originalImage;
+        Image processed = getProcessedImage();
+        return processed != null ? processed : getOriginalImage();
+    }
+
+    public boolean hasProcessedImage(){
+        return processedImage != null || processedFile != null;
+    }
+
+    private Object processedBasis(){
+        Image processed = processedImage;
+        return processed != null ? processed : processedFile;
+    }
+
+    // Untouched photos come from the disk cache or are decoded at thumbnail size; renders are
+    // shrunk from memory. Nothing is locked while the thumbnail is made, so the FX thread never
+    // waits on a decode here; two threads may both make one and the first to publish wins.
+    public Image getThumbnail(){
+        Object basis = processedBasis();
+        Thumbnail current = thumbnail;
+        if (current != null && current.basis == basis) {
+            return current.image;
+        }
+
+        Image image = basis != null ? createProcessedThumbnail(basis) : loadSourceThumbnail();
+        if (image == null) {
+            Image original = getOriginalImage();
+            image = original != null ? ImageUtils.createThumbnail(original) : null;
+        }
+        if (image == null) {
+            return null;
+        }
+
+        Thumbnail made = new Thumbnail(image, basis);
+        if (!THUMBNAIL.compareAndSet(this, current, made)) {
+            Thumbnail published = thumbnail;
+            if (published != null && published.basis == basis) {
+                return published.image;
+            }
+        }
+        return image;
+    }
+
+    // The thumbnail if an up-to-date one is already in memory; never decodes and never blocks.
+    public Image peekThumbnail(){
+        Thumbnail current = thumbnail;
+        return current != null && current.basis == processedBasis() ? current.image : null;
+    }
+
+    private static Image createProcessedThumbnail(Object basis){
+        Image processed = basis instanceof File file ? RenderSpill.read(file) : (Image) basis;
+        return processed != null ? ImageUtils.createThumbnail(processed) : null;
+    }
+
+    private Image loadSourceThumbnail(){
+        ThumbnailDiskCache.Entry cached = ThumbnailDiskCache.get(sourceFile);
+        if (cached != null) {
+            return cached.getThumbnail();
+        }
+        Image loaded = ImageUtils.loadThumbnail(sourceFile);
+        if (loaded != null && width > 0 && height > 0) {
+            ThumbnailDiskCache.put(sourceFile, loaded, width, height, orientation);
+        }
+        return loaded;
+    }
+
+    // Hashed from the untouched source thumbnail, so applying a theme does not change it. The
+    // hash is deterministic, so a racing second computation just writes the same value.
+    public long getPerceptualHash(){
+        if (!perceptualHashed) {
+            Thumbnail current = thumbnail;
+            Image source = current != null && current.basis == null ? current.image : loadSourceThumbnail();
+            if (source == null) {
+                source = getOriginalImage();
+            }
+            perceptualHash = source != null ? PerceptualHash.dHash(source) : 0;
+            perceptualHashed = true;
+        }
+        return perceptualHash;
+    }
+
+    // Length of the source file when the photo was loaded; the free first test for a duplicate.
+    public long getContentLength(){
+        return contentLength;
+    }
+
+    // CRC32C of the source bytes, read only once another photo turns out to have the same
+    // length. An unreadable file is remembered as such and never matches.
+    public long getContentHash(){
+        if (!contentHashed) {
+            contentHash = hashContents(sourceFile);
+            contentHashed = true;
+        }
+        return contentHash;
+    }
+
+    // Same length, same CRC, then byte for byte, so a skipped import is always a true copy.
+    public boolean hasSameContents(Photo other){
+        if (contentLength != other.contentLength || getContentHash() == UNREADABLE
+                || getContentHash() != other.getContentHash()) {
+            return false;
+        }
+        try {
+            return Files.mismatch(sourceFile.toPath(), other.sourceFile.toPath()) == -1;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long hashContents(File file){
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return UNREADABLE;
+        }
+        return crc.getValue();
+    }
+
+    // A photo already loaded that this one looks nearly identical to, such as the previous shot
+    // of a burst; flagged for the operator to review, never removed automatically.
+    public Photo getSimilarPhoto(){
+        return similarPhoto;
+    }
+
+    public void setSimilarPhoto(Photo similarPhoto){
+        this.similarPhoto = similarPhoto;
+    }
+
+    public Image getPreviewImage(){
+        Image processed = getProcessedImage();
+        if (processed != null) {
+            return processed;
+        }
+        Image preview = ImageUtils.loadPreview(sourceFile);
+        return preview != null ? preview : getOriginalImage();
     }
 
     public boolean hasThemeApplied(){
         return appliedTheme != null;
     }
 
+    // Never blocks: the old thumbnail goes stale because it was made from a different image.
     public void setProcessedImage(Image processedImage) {
+        File previous = processedFile;
         this.processedImage = processedImage;
+        this.processedFile = null;
+        RenderSpill.discard(previous);
+    }
+
+    // A render written out by RenderSpill; only its thumbnail stays in memory, and the full image
+    // is read back on demand.
+    public void setProcessedFile(File processedFile, Image thumbnail) {
+        File previous = this.processedFile;
+        this.processedImage = null;
+        this.processedFile = processedFile;
+        if (thumbnail != null) {
+            this.thumbnail = new Thumbnail(thumbnail, processedFile);
+        }
+        if (previous != processedFile) {
+            RenderSpill.discard(previous);
+        }
     }
 
     public void setAppliedTheme(Theme theme){
@@ -81,16 +335,25 @@ public class Photo {
     }
 
     public void resetToOriginal(){
-        this.processedImage = this.originalImage;
+        File previous = processedFile;
+        this.processedImage = null;
+        this.processedFile = null;
         this.appliedTheme = null;
+        RenderSpill.discard(previous);
     }
 
     public double getWidth(){
-        return originalImage.getWidth();
+        if (width <= 0) {
+            getOriginalImage();
+        }
+        return width;
     }
 
     public double getHeight(){
-        return originalImage.getHeight();
+        if (height <= 0) {
+            getOriginalImage();
+        }
+        return height;
     }
 
     public double getAspectRatio(){
@@ -5,10 +5,16 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Theme {
 
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+
     private final String id;
     private String name;
 
@@ -26,6 +32,7 @@ public class Theme {
 
     private FilterType filterType;
     private double filterIntensity;
+    private final List<FilterLayer> extraFilters;
 
     private TextOverlay headerText;
     private TextOverlay footerText;
@@ -117,6 +124,36 @@ public class Theme {
         CENTER;
     }
 
+    public static class FilterLayer {
+        private final FilterType filterType;
+        private final double intensity;
+
+        public FilterLayer(FilterType filterType, double intensity) {
+            this.filterType = filterType;
+            this.intensity = Math.max(0.0, Math.min(1.0, intensity));
+        }
+
+        public FilterType getFilterType() { return filterType; }
+        public double getIntensity() { return intensity; }
+
+        public boolean isActive() {
+            return filterType != FilterType.NONE && intensity > 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FilterLayer layer = (FilterLayer) o;
+            return filterType == layer.filterType && Double.compare(intensity, layer.intensity) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filterType, intensity);
+        }
+    }
+
     public static class TextOverlay {
         private String text;
         private String fontFamily;
@@ -177,6 +214,7 @@ public class Theme {
         this.backgroundPattern = BackgroundPattern.SOLID;
         this.filterType = FilterType.NONE;
         this.filterIntensity = 0.0;
+        this.extraFilters = new ArrayList<>();
         this.isCustom = false;
         this.headerText = new TextOverlay("", "Arial", 24, FontWeight.BOLD, Color.BLACK, Pos.CENTER);
         this.headerText.setEnabled(false);
@@ -193,7 +231,12 @@ public class Theme {
     }
 
     private String generateId(){
-        return "THEME_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000);
+        return "THEME_" + System.currentTimeMillis() + "_" + ID_SEQUENCE.incrementAndGet();
+    }
+
+    // Themes are mutable and compare by id; renders and caches work from a snapshot instead.
+    public ThemeSnapshot snapshot() {
+        return new ThemeSnapshot(this);
     }
 
     public String getId() { return id; }
@@ -240,6 +283,10 @@ public class Theme {
     public void setFilterIntensity(double intensity) {
         this.filterIntensity = Math.max(0.0, Math.min(1.0, intensity));
     }
+    public void addFilterLayer(FilterType filterType, double intensity) {
+        extraFilters.add(new FilterLayer(filterType, intensity));
+    }
+    public void clearFilterLayers() { extraFilters.clear(); }
     public void setLogoPath(String logoPath) { this.logoPath = logoPath; }
     public void setLogoPosition(LogoPosition logoPosition) {
         this.logoPosition = logoPosition;
@@ -254,7 +301,22 @@ public class Theme {
     }
 
     public boolean hasFilter() {
-        return filterType != FilterType.NONE && filterIntensity > 0;
+        return !getFilterLayers().isEmpty();
+    }
+
+    // The primary filter followed by any stacked layers, skipping inactive ones.
+    public List<FilterLayer> getFilterLayers() {
+        List<FilterLayer> layers = new ArrayList<>(extraFilters.size() + 1);
+        FilterLayer primary = new FilterLayer(filterType, filterIntensity);
+        if (primary.isActive()) {
+            layers.add(primary);
+        }
+        for (FilterLayer layer : extraFilters) {
+            if (layer.isActive()) {
+                layers.add(layer);
+            }
+        }
+        return Collections.unmodifiableList(layers);
     }
 
     public boolean hasHeaderText() {
@@ -297,6 +359,7 @@ public class Theme {
         copy.setBackgroundPattern(this.backgroundPattern);
         copy.setFilterType(this.filterType);
         copy.setFilterIntensity(this.filterIntensity);
+        copy.extraFilters.addAll(this.extraFilters);
         copy.setCustom(true);
 
         return copy;
@@ -360,6 +423,15 @@ public class Theme {
         return theme;
     }
 
+    public static Theme createGoldenHour() {
+        Theme theme = new Theme("Golden Hour", LayoutType.SINGLE, BorderStyle.SOLID,
+                Color.rgb(255, 224, 178), 12, Color.WHITE);
+        theme.setFilterType(FilterType.WARM);
+        theme.setFilterIntensity(0.8);
+        theme.addFilterLayer(FilterType.CONTRAST, 0.3);
+        return theme;
+    }
+
     @Override
     public boolean equals(Object o) {
         if(this == o) return true;
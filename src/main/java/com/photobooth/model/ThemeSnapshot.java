@@ -0,0 +1,250 @@
+package com.photobooth.model;
+
+import com.photobooth.model.Theme.BackgroundPattern;
+import com.photobooth.model.Theme.BorderStyle;
+import com.photobooth.model.Theme.FilterLayer;
+import com.photobooth.model.Theme.LayoutType;
+import com.photobooth.model.Theme.LogoPosition;
+import com.photobooth.model.Theme.TextOverlay;
+import com.photobooth.util.Fingerprint;
+import javafx.geometry.Pos;
+import javafx.scene.paint.Color;
+import javafx.scene.text.FontWeight;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+// Immutable copy of everything about a theme that affects its rendered output, taken with
+// Theme.snapshot(). Themes that would render identically share a fingerprint whatever their
+// name or id, and any edit to a theme yields a new one. Each render stage also gets the list of
+// just the fields it reads, so caches can tell which stages an edit touched. Equality compares
+// the fields themselves, so two snapshots whose fingerprints collide are still told apart.
+public final class ThemeSnapshot {
+
+    private final LayoutType layoutType;
+    private final BorderStyle borderStyle;
+    private final Color borderColor;
+    private final int borderWidth;
+    private final int cornerRadius;
+    private final boolean shadow;
+    private final Color backgroundColor;
+    private final BackgroundPattern backgroundPattern;
+    private final List<FilterLayer> filterLayers;
+    private final Text headerText;
+    private final Text footerText;
+    private final String logoPath;
+    private final LogoPosition logoPosition;
+    private final boolean qrCodeEnabled;
+
+    private final List<Object> borderParameters;
+    private final List<Object> canvasParameters;
+    private final List<Object> textParameters;
+    private final long fingerprint;
+
+    public static final class Text {
+        private final String text;
+        private final String fontFamily;
+        private final int fontSize;
+        private final FontWeight fontWeight;
+        private final Color textColor;
+        private final Pos position;
+        private final boolean enabled;
+
+        private Text(TextOverlay overlay) {
+            this.text = overlay.getText();
+            this.fontFamily = overlay.getFontFamily();
+            this.fontSize = overlay.getFontSize();
+            this.fontWeight = overlay.getFontWeight();
+            this.textColor = overlay.getTextColor();
+            this.position = overlay.getPosition();
+            this.enabled = overlay.isEnabled();
+        }
+
+        public String getText() { return text; }
+        public String getFontFamily() { return fontFamily; }
+        public int getFontSize() { return fontSize; }
+        public FontWeight getFontWeight() { return fontWeight; }
+        public Color getTextColor() { return textColor; }
+        public Pos getPosition() { return position; }
+        public boolean isEnabled() { return enabled; }
+
+        public boolean isVisible() {
+            return enabled && text != null && !text.isEmpty();
+        }
+
+        // Hidden text renders nothing, so any two hidden overlays render alike.
+        private boolean rendersLike(Text other) {
+            if (!isVisible() || !other.isVisible()) {
+                return isVisible() == other.isVisible();
+            }
+            return equals(other);
+        }
+
+        // Hidden text contributes nothing, whatever its font or colour.
+        private List<Object> parameters() {
+            if (!isVisible()) {
+                return List.of(false);
+            }
+            return parameterList(true, text, fontFamily, fontSize, fontWeight, textColor, position);
+        }
+
+        private Fingerprint addTo(Fingerprint fingerprint) {
+            if (!isVisible()) {
+                return fingerprint.add(false);
+            }
+            return fingerprint.add(true).add(text).add(fontFamily).add(fontSize)
+                    .add(fontWeight).add(textColor).add(position);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Text other = (Text) o;
+            return fontSize == other.fontSize && enabled == other.enabled
+                    && Objects.equals(text, other.text) && Objects.equals(fontFamily, other.fontFamily)
+                    && fontWeight == other.fontWeight && Objects.equals(textColor, other.textColor)
+                    && position == other.position;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, fontFamily, fontSize, fontWeight, textColor, position, enabled);
+        }
+    }
+
+    ThemeSnapshot(Theme theme) {
+        this.layoutType = theme.getLayoutType();
+        this.borderStyle = theme.getBorderStyle();
+        this.borderColor = theme.getBorderColor();
+        this.borderWidth = theme.getBorderWidth();
+        this.cornerRadius = theme.getCornerRadius();
+        this.shadow = theme.hasShadow();
+        this.backgroundColor = theme.getBackgroundColor();
+        this.backgroundPattern = theme.getBackgroundPattern();
+        this.filterLayers = theme.getFilterLayers();
+        this.headerText = new Text(theme.getHeaderText());
+        this.footerText = new Text(theme.getFooterText());
+        this.logoPath = theme.getLogoPath();
+        this.logoPosition = theme.getLogoPosition();
+        this.qrCodeEnabled = theme.isQrCodeEnabled();
+
+        this.borderParameters = parameterList(borderStyle, borderWidth, cornerRadius,
+                borderColor, backgroundColor, shadow);
+        this.canvasParameters = parameterList(layoutType, backgroundColor, backgroundPattern, borderWidth);
+        this.textParameters = parameterList(headerText.parameters(), footerText.parameters());
+
+        Fingerprint filter = new Fingerprint().add(filterLayers.size());
+        for (FilterLayer layer : filterLayers) {
+            filter.add(layer.getFilterType()).add(layer.getIntensity());
+        }
+        long filterFingerprint = filter.value();
+        long borderFingerprint = new Fingerprint()
+                .add(borderStyle).add(borderWidth).add(cornerRadius)
+                .add(borderColor).add(backgroundColor).add(shadow)
+                .value();
+        long canvasFingerprint = new Fingerprint()
+                .add(layoutType).add(backgroundColor).add(backgroundPattern).add(borderWidth)
+                .value();
+        long textFingerprint = footerText.addTo(headerText.addTo(new Fingerprint())).value();
+        this.fingerprint = new Fingerprint()
+                .add(layoutType)
+                .add(filterFingerprint).add(borderFingerprint)
+                .add(canvasFingerprint).add(textFingerprint)
+                .add(hasLogo() ? logoPath : null).add(hasLogo() ? logoPosition : null)
+                .add(qrCodeEnabled)
+                .value();
+    }
+
+    public LayoutType getLayoutType() { return layoutType; }
+    public int getPhotoSlots() { return layoutType.getSlots(); }
+    public BorderStyle getBorderStyle() { return borderStyle; }
+    public Color getBorderColor() { return borderColor; }
+    public int getBorderWidth() { return borderWidth; }
+    public int getCornerRadius() { return cornerRadius; }
+    public boolean hasShadow() { return shadow; }
+    public Color getBackgroundColor() { return backgroundColor; }
+    public BackgroundPattern getBackgroundPattern() { return backgroundPattern; }
+    public List<FilterLayer> getFilterLayers() { return filterLayers; }
+    public Text getHeaderText() { return headerText; }
+    public Text getFooterText() { return footerText; }
+    public String getLogoPath() { return logoPath; }
+    public LogoPosition getLogoPosition() { return logoPosition; }
+    public boolean isQrCodeEnabled() { return qrCodeEnabled; }
+
+    public boolean isMultiPhoto() {
+        return layoutType.getSlots() > 1;
+    }
+
+    public boolean hasBorder() {
+        return borderStyle != BorderStyle.NONE && borderWidth > 0;
+    }
+
+    public boolean hasFilter() {
+        return !filterLayers.isEmpty();
+    }
+
+    public boolean hasHeaderText() {
+        return headerText.isVisible();
+    }
+
+    public boolean hasFooterText() {
+        return footerText.isVisible();
+    }
+
+    public boolean hasLogo() {
+        return logoPath != null && !logoPath.isEmpty();
+    }
+
+    // Stable across runs, so it can key persisted output as well as in-memory caches.
+    public long getFingerprint() { return fingerprint; }
+
+    // The fields each render stage reads, as lists that compare by value. Hidden text is
+    // reduced to a marker, so edits to it leave the text stage's list unchanged.
+    public List<Object> getFilterParameters() { return Collections.unmodifiableList(filterLayers); }
+    public List<Object> getBorderParameters() { return borderParameters; }
+    public List<Object> getCanvasParameters() { return canvasParameters; }
+    public List<Object> getTextParameters() { return textParameters; }
+
+    // Fields such as an unset colour may be null, which List.of does not allow.
+    private static List<Object> parameterList(Object... values) {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    // The fingerprint rules out almost every mismatch cheaply; the field comparison decides. It
+    // ignores exactly what the fingerprint ignores, such as hidden text and an absent logo.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ThemeSnapshot other = (ThemeSnapshot) o;
+        return fingerprint == other.fingerprint
+                && layoutType == other.layoutType
+                && borderStyle == other.borderStyle
+                && borderWidth == other.borderWidth
+                && cornerRadius == other.cornerRadius
+                && shadow == other.shadow
+                && Objects.equals(borderColor, other.borderColor)
+                && Objects.equals(backgroundColor, other.backgroundColor)
+                && backgroundPattern == other.backgroundPattern
+                && filterLayers.equals(other.filterLayers)
+                && headerText.rendersLike(other.headerText)
+                && footerText.rendersLike(other.footerText)
+                && hasLogo() == other.hasLogo()
+                && (!hasLogo() || (logoPath.equals(other.logoPath) && logoPosition == other.logoPosition))
+                && qrCodeEnabled == other.qrCodeEnabled;
+    }
+
+    // Equal snapshots always have equal fingerprints, so the fingerprint is a valid hash.
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThemeSnapshot{layout=%s, fingerprint=%016x}", layoutType.getDisplayName(), fingerprint);
+    }
+}
@@ -0,0 +1,220 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.model.Theme;
+import com.photobooth.model.ThemeSnapshot;
+import com.photobooth.util.ImageUtils;
+import com.photobooth.util.RenderSpill;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.photobooth.util.Constants.*;
+
+// Renders one theme onto a whole set of photos concurrently and writes each result back as it
+// completes. Each output is written to RenderSpill on the worker and only its thumbnail is
+// handed to the photo, so a large batch costs disk space rather than a full-size image per
+// photo, and never displaces the interactive renders in RenderCache. At most
+// BATCH_RENDER_MAX_IN_FLIGHT renders are between decode and delivery at once.
+public class BatchRenderer {
+
+    private final PhotoManager photoManager;
+    private final ExecutorService renderExecutor;
+    private final Executor deliveryExecutor;
+
+    public interface BatchRenderListener {
+        default void onPhotoRendered(Photo photo, int completed, int total) { }
+        default void onRenderFailed(Photo photo, String reason, int completed, int total) { }
+        default void onBatchFinished(int rendered, int failed, boolean cancelled, long elapsedMillis) { }
+    }
+
+    public BatchRenderer(PhotoManager photoManager) {
+        this(photoManager, TaskExecutors.batchRender(), Platform::runLater);
+    }
+
+    // Results are written to the photos and announced through PhotoManager on the delivery executor.
+    public BatchRenderer(PhotoManager photoManager, ExecutorService renderExecutor, Executor deliveryExecutor) {
+        this.photoManager = photoManager;
+        this.renderExecutor = renderExecutor;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    // Layout themes need several photos per output, so only single-photo themes can be batched.
+    // Every photo renders from the theme as it is now, even if it is edited mid-batch.
+    public BatchJob renderAll(List<Photo> photos, Theme theme, BatchRenderListener listener) {
+        if (theme.isMultiPhoto()) {
+            throw new IllegalArgumentException("Layout themes cannot be applied to every photo: " + theme.getName());
+        }
+
+        BatchJob job = new BatchJob(theme, photos.size(), listener);
+        if (photos.isEmpty()) {
+            job.finish();
+            return job;
+        }
+
+        for (Photo photo : photos) {
+            job.futures.add(renderExecutor.submit(() -> render(job, photo)));
+        }
+        return job;
+    }
+
+    private void render(BatchJob job, Photo photo) {
+        if (job.isCancelled()) {
+            return;
+        }
+
+        try {
+            job.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (job.isCancelled()) {
+            job.inFlight.release();
+            return;
+        }
+
+        File output = null;
+        Image thumbnail = null;
+        String failure = null;
+        try {
+            Image processed = ImageProcessor.applyTheme(photo, job.snapshot, ImageProcessor.RenderProgress.NONE);
+            if (processed == null) {
+                failure = "Could not load original";
+            } else {
+                output = RenderSpill.write(photo.getId(), processed);
+                if (output != null) {
+                    thumbnail = ImageUtils.createThumbnail(processed);
+                } else {
+                    failure = "Could not write rendered image";
+                }
+            }
+        } catch (CancellationException e) {
+            job.inFlight.release();
+            return;
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        }
+
+        File result = output;
+        Image preview = thumbnail;
+        String reason = failure;
+        deliveryExecutor.execute(() -> job.deliver(photo, result, preview, reason));
+    }
+
+    public class BatchJob {
+        private final Theme theme;
+        private final ThemeSnapshot snapshot;
+        private final int total;
+        private final BatchRenderListener listener;
+        private final List<Future<?>> futures;
+        private final Semaphore inFlight;
+        private final AtomicBoolean cancelled;
+        private final AtomicBoolean finished;
+        private final AtomicInteger completed;
+        private final long startedAt;
+        private int rendered;
+        private int failed;
+
+        private BatchJob(Theme theme, int total, BatchRenderListener listener) {
+            this.theme = theme;
+            this.snapshot = theme.snapshot();
+            this.total = total;
+            this.listener = listener;
+            this.futures = new ArrayList<>(total);
+            this.inFlight = new Semaphore(BATCH_RENDER_MAX_IN_FLIGHT);
+            this.cancelled = new AtomicBoolean(false);
+            this.finished = new AtomicBoolean(false);
+            this.completed = new AtomicInteger();
+            this.startedAt = System.nanoTime();
+        }
+
+        // Runs on the delivery executor.
+        private void deliver(Photo photo, File output, Image thumbnail, String failure) {
+            inFlight.release();
+            if (isCancelled()) {
+                RenderSpill.discard(output);
+                return;
+            }
+
+            int done = completed.incrementAndGet();
+            if (output != null && photoManager.contains(photo)) {
+                photo.setProcessedFile(output, thumbnail);
+                photo.setAppliedTheme(theme);
+                photoManager.notifyPhotoUpdated(photo);
+                rendered++;
+                listener.onPhotoRendered(photo, done, total);
+            } else if (output != null) {
+                RenderSpill.discard(output);
+            } else {
+                failed++;
+                System.err.println("Failed to render " + photo.getFileName() + ": " + failure);
+                listener.onRenderFailed(photo, failure, done, total);
+            }
+
+            if (done == total) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                long elapsed = getElapsedMillis();
+                System.out.println(String.format("Rendered '%s' onto %d of %d photos in %.1f s (%.1f photos/s)%s",
+                        theme.getName(), rendered, total, elapsed / 1000.0, getPhotosPerSecond(),
+                        isCancelled() ? " (cancelled)" : ""));
+                listener.onBatchFinished(rendered, failed, isCancelled(), elapsed);
+            }
+        }
+
+        public void cancel() {
+            if (finished.get() || !cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            deliveryExecutor.execute(this::finish);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public boolean isDone() {
+            return finished.get();
+        }
+
+        public Theme getTheme() {
+            return theme;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompleted() {
+            return completed.get();
+        }
+
+        public long getElapsedMillis() {
+            return (System.nanoTime() - startedAt) / 1_000_000;
+        }
+
+        public double getPhotosPerSecond() {
+            long elapsed = getElapsedMillis();
+            return elapsed > 0 ? completed.get() * 1000.0 / elapsed : 0;
+        }
+    }
+}
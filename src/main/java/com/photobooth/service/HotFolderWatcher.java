@@ -0,0 +1,339 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.util.ImageUtils;
+import javafx.application.Platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.photobooth.util.Constants.*;
+
+// Watches a directory that a tethered camera writes into and feeds settled images through
+// PhotoImporter. A file is imported once its size and timestamp have stopped changing for the
+// settle time. At most HOT_FOLDER_QUEUE_CAPACITY files are tracked and HOT_FOLDER_MAX_IN_FLIGHT
+// decoded at once; anything beyond that waits on disk and is picked up by a rescan. Clearing
+// the photos cancels any import the watcher still has running, so nothing arrives afterwards.
+public class HotFolderWatcher {
+
+    private final PhotoImporter photoImporter;
+    private final Executor deliveryExecutor;
+    private final Semaphore inFlight;
+    private final Set<PhotoImporter.ImportJob> jobs = ConcurrentHashMap.newKeySet();
+
+    private Path directory;
+    private WatchService watchService;
+    private Thread thread;
+
+    public interface HotFolderListener {
+        default void onPhotoImported(Photo photo) { }
+        default void onImportFailed(File file, String reason) { }
+        default void onDuplicateSkipped(File file, Photo existing) { }
+        default void onWatchStopped(String reason) { }
+    }
+
+    public HotFolderWatcher(PhotoManager photoManager, PhotoImporter photoImporter) {
+        this(photoManager, photoImporter, Platform::runLater);
+    }
+
+    // Listener callbacks run on the delivery executor, the same one PhotoImporter delivers on.
+    public HotFolderWatcher(PhotoManager photoManager, PhotoImporter photoImporter, Executor deliveryExecutor) {
+        this.photoImporter = photoImporter;
+        this.deliveryExecutor = deliveryExecutor;
+        this.inFlight = new Semaphore(HOT_FOLDER_MAX_IN_FLIGHT);
+        photoManager.addChangeListener(new PhotoManager.PhotoChangeListener() {
+            @Override
+            public void onPhotosCleared() {
+                cancelImports();
+            }
+        });
+    }
+
+    // Cancelled jobs still return their in-flight permits through BatchListener.onImportFinished.
+    public void cancelImports() {
+        for (PhotoImporter.ImportJob job : List.copyOf(jobs)) {
+            job.cancel();
+        }
+    }
+
+    // Files already in the directory are treated as seen; only new arrivals are imported.
+    public synchronized void start(Path directory, HotFolderListener listener) throws IOException {
+        stop();
+
+        WatchService service = directory.getFileSystem().newWatchService();
+        try {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | RuntimeException e) {
+            service.close();
+            throw e;
+        }
+
+        this.directory = directory;
+        this.watchService = service;
+        this.thread = TaskExecutors.daemonThreads("photobooth-hotfolder")
+                .newThread(new WatchLoop(directory, service, listener));
+        thread.start();
+        System.out.println("Watching hot folder: " + directory);
+    }
+
+    public synchronized void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close hot folder watch: " + e.getMessage());
+        }
+        thread.interrupt();
+        watchService = null;
+        thread = null;
+        System.out.println("Stopped watching hot folder: " + directory);
+    }
+
+    // Clears state when the loop ends by itself, e.g. because the directory was removed.
+    private synchronized void detach(WatchService service) {
+        if (watchService != service) {
+            return;
+        }
+        try {
+            service.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close hot folder watch: " + e.getMessage());
+        }
+        watchService = null;
+        thread = null;
+    }
+
+    public synchronized boolean isWatching() {
+        return watchService != null;
+    }
+
+    public synchronized Path getDirectory() {
+        return directory;
+    }
+
+    private static class Pending {
+        long size = -1;
+        long modified = -1;
+        long stableSince;
+    }
+
+    // Runs on the watcher thread; all of its state is confined there. seen holds only files that
+    // are still in the directory, so it is bounded by the folder, not by the length of the event.
+    private class WatchLoop implements Runnable {
+        private final Path directory;
+        private final WatchService service;
+        private final HotFolderListener listener;
+        private final Map<Path, Pending> pending = new LinkedHashMap<>();
+        private final Set<Path> seen = new HashSet<>();
+        private boolean rescan;
+
+        WatchLoop(Path directory, WatchService service, HotFolderListener listener) {
+            this.directory = directory;
+            this.service = service;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            seen.addAll(listImages());
+            String reason = "Hot folder closed";
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    WatchKey key = service.poll(HOT_FOLDER_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        readEvents(key);
+                        if (!key.reset()) {
+                            reason = "Hot folder is no longer accessible: " + directory;
+                            break;
+                        }
+                    }
+                    if (rescan) {
+                        rescanDirectory();
+                    }
+                    dispatchSettled();
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                // Stopped.
+            }
+
+            detach(service);
+            String stopReason = reason;
+            deliveryExecutor.execute(() -> listener.onWatchStopped(stopReason));
+        }
+
+        private void readEvents(WatchKey key) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    rescan = true;
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    forget(path);
+                } else {
+                    track(path);
+                }
+            }
+        }
+
+        private void track(Path path) {
+            if (seen.contains(path) || pending.containsKey(path)
+                    || !ImageUtils.isSupportedImageFile(path.toFile())) {
+                return;
+            }
+            if (pending.size() >= HOT_FOLDER_QUEUE_CAPACITY) {
+                rescan = true;
+                return;
+            }
+            pending.put(path, new Pending());
+        }
+
+        // A file written again under the same name after a delete is a new shot and is imported.
+        private void forget(Path path) {
+            seen.remove(path);
+            pending.remove(path);
+        }
+
+        // Catches up on events dropped by an overflow or skipped while the queue was full, and
+        // drops seen files whose delete event was lost with it.
+        private void rescanDirectory() {
+            if (pending.size() >= HOT_FOLDER_QUEUE_CAPACITY) {
+                return;
+            }
+            rescan = false;
+            List<Path> images = listImages();
+            seen.retainAll(new HashSet<>(images));
+            for (Path path : images) {
+                track(path);
+            }
+        }
+
+        private void dispatchSettled() {
+            long now = System.currentTimeMillis();
+            List<File> ready = new ArrayList<>();
+
+            Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, Pending> entry = iterator.next();
+                File file = entry.getKey().toFile();
+                Pending state = entry.getValue();
+                if (!file.isFile()) {
+                    iterator.remove();
+                    continue;
+                }
+
+                long size = file.length();
+                long modified = file.lastModified();
+                if (size != state.size || modified != state.modified) {
+                    state.size = size;
+                    state.modified = modified;
+                    state.stableSince = now;
+                } else if (size > 0 && now - state.stableSince >= HOT_FOLDER_SETTLE_MS
+                        && inFlight.tryAcquire()) {
+                    iterator.remove();
+                    seen.add(entry.getKey());
+                    ready.add(file);
+                }
+            }
+
+            // Started on the delivery thread, the thread Clear runs on, so a job is registered
+            // before a Clear can look for it and a Clear can never land between the two.
+            if (!ready.isEmpty()) {
+                BatchListener batch = new BatchListener(ready.size(), listener);
+                deliveryExecutor.execute(() -> startImport(ready, batch));
+            }
+        }
+
+        private void startImport(List<File> ready, BatchListener batch) {
+            batch.job = photoImporter.importFiles(ready, batch);
+            jobs.add(batch.job);
+            // A direct delivery executor may already have finished the job.
+            if (batch.job.isDone()) {
+                jobs.remove(batch.job);
+            }
+        }
+
+        private List<Path> listImages() {
+            List<Path> images = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    if (ImageUtils.isSupportedImageFile(path.toFile())) {
+                        images.add(path);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to list hot folder: " + e.getMessage());
+            }
+            return images;
+        }
+    }
+
+    // Returns one in-flight permit per file, including files a cancelled job never delivers.
+    // Confined to the delivery thread, like the job it listens to.
+    private class BatchListener implements PhotoImporter.ImportListener {
+        private final int size;
+        private final HotFolderListener listener;
+        private final AtomicInteger delivered = new AtomicInteger();
+        private PhotoImporter.ImportJob job;
+
+        BatchListener(int size, HotFolderListener listener) {
+            this.size = size;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onPhotoImported(Photo photo, int completed, int total) {
+            delivered.incrementAndGet();
+            inFlight.release();
+            listener.onPhotoImported(photo);
+        }
+
+        @Override
+        public void onImportFailed(File file, String reason, int completed, int total) {
+            delivered.incrementAndGet();
+            inFlight.release();
+            listener.onImportFailed(file, reason);
+        }
+
+        @Override
+        public void onDuplicateSkipped(File file, Photo existing, int completed, int total) {
+            delivered.incrementAndGet();
+            inFlight.release();
+            listener.onDuplicateSkipped(file, existing);
+        }
+
+        @Override
+        public void onImportFinished(int imported, int failed, boolean cancelled) {
+            if (job != null) {
+                jobs.remove(job);
+            }
+            int undelivered = size - delivered.getAndSet(size);
+            if (undelivered > 0) {
+                inFlight.release(undelivered);
+            }
+        }
+    }
+}
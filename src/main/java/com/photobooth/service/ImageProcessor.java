@@ -2,11 +2,15 @@ package com.photobooth.service;
 
 import com.photobooth.model.Photo;
 import com.photobooth.model.Theme;
-import com.photobooth.model.Theme.FilterType;
+import com.photobooth.model.Theme.FilterLayer;
 import com.photobooth.model.Theme.LayoutType;
-import com.photobooth.model.Theme.TextOverlay;
+import com.photobooth.model.ThemeSnapshot;
+import com.photobooth.model.ThemeSnapshot.Text;
+import com.photobooth.service.RenderGraph.Key;
+import com.photobooth.service.RenderGraph.Node;
+import com.photobooth.util.ColorMatrix;
+import com.photobooth.util.FilterLookupTables;
 import com.photobooth.util.ImageUtils;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.text.FontWeight;
@@ -15,64 +19,216 @@ import java.awt.*;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class ImageProcessor {
 
     private static final int PRINT_4X6_WIDTH = 1800;
     private static final int PRINT_4X6_HEIGHT = 1200;
+    private static final int SINGLE_RENDER_STAGES = 3;
+    private static final int STRIP_PHOTO_WIDTH = 600;
+    private static final int STRIP_PHOTO_HEIGHT = 400;
+    private static final int COLLAGE_PHOTO_SIZE = 400;
+    private static final int COLLAGE_LARGE_WIDTH = 600;
+    private static final int COLLAGE_LARGE_HEIGHT = 800;
+    private static final int COLLAGE_SMALL_WIDTH = 300;
+    private static final int COLLAGE_SMALL_HEIGHT = 400;
+    private static final int LAYOUT_SPACING = 10;
+
+    @FunctionalInterface
+    public interface RenderProgress {
+        RenderProgress NONE = (completed, total) -> { };
+
+        void update(long completed, long total);
+    }
+
+    // Supplies the source node for each layout slot.
+    @FunctionalInterface
+    private interface SlotSource {
+        Node node(int slot);
+    }
 
     public static Image applyTheme(Photo photo, Theme theme){
+        return applyTheme(photo, theme, RenderProgress.NONE);
+    }
+
+    public static Image applyTheme(Photo photo, Theme theme, RenderProgress progress){
+        return theme != null ? applyTheme(photo, theme.snapshot(), progress) : null;
+    }
+
+    // Renders from a snapshot, so edits made to the theme while this runs cannot tear the output.
+    public static Image applyTheme(Photo photo, ThemeSnapshot theme, RenderProgress progress){
         if (photo == null || theme == null){
             return null;
         }
-        Image image = photo.getOriginalImage();
+        BufferedImage rendered = renderTheme(photo, theme, progress);
+        return rendered != null ? ImageUtils.toFXImage(rendered) : null;
+    }
 
-        if (theme.hasFilter()) {
-            image = applyFilter(image, theme.getFilterType(), theme.getFilterIntensity());
-        }
+    private static BufferedImage renderTheme(Photo photo, ThemeSnapshot theme, RenderProgress progress){
+        return singleNode(decodeNode(photo), theme, 1.0, progress).evaluate();
+    }
 
-        if (theme.hasBorder()) {
-            image = addBorder(image, theme);
-        }
+    // filter -> border/shadow -> text. Border and text sizes are multiplied by scale, which is
+    // below 1 when rendering a proxy. These are full-size rasters, so at most one is memoized:
+    // the stage under the text, and only when there is text, so a text edit costs one pass.
+    private static Node singleNode(Node source, ThemeSnapshot theme, double scale, RenderProgress progress){
+        boolean memoizeBeforeText = theme.hasFooterText();
+        Node filtered = filterNode(source, theme, memoizeBeforeText && !theme.hasBorder(),
+                tracked(progress, 1, SINGLE_RENDER_STAGES));
+        Node bordered = borderNode(filtered, theme, scale, memoizeBeforeText,
+                tracked(progress, 2, SINGLE_RENDER_STAGES));
+        return textNode(bordered, theme, scale, tracked(progress, 3, SINGLE_RENDER_STAGES));
+    }
 
-        image = addTextOverlays(image, theme);
+    // Renders a small look-alike of the theme from a reduced-size proxy of the photo. Layout
+    // themes repeat the proxy in every slot. Full-resolution pixels are never touched, and
+    // nothing is memoized because the proxy has no stable identity. The proxy is shared by every
+    // theme rendering at once, so its node does not own it and stages copy before drawing.
+    public static Image renderPreview(BufferedImage proxy, int originalWidth, ThemeSnapshot theme,
+                                      int maxWidth, int maxHeight){
+        Node source = new Node(RenderGraph.TRANSIENT, false, false, () -> proxy);
+        BufferedImage rendered;
+        if (theme.getLayoutType() == LayoutType.SINGLE) {
+            double scale = proxy.getWidth() / (double) Math.max(1, originalWidth);
+            rendered = singleNode(source, theme, scale, RenderProgress.NONE).evaluate();
+        } else {
+            rendered = layoutNode(slot -> source, theme.getPhotoSlots(), theme, RenderProgress.NONE).evaluate();
+        }
+        return ImageUtils.toFXImage(ImageUtils.resizeRaster(rendered, maxWidth, maxHeight));
+    }
 
-        return image;
+    public static Image applyThemeWithLayout(List<Photo> photos, Theme theme){
+        return applyThemeWithLayout(photos, theme, RenderProgress.NONE);
+    }
 
+    public static Image applyThemeWithLayout(List<Photo> photos, Theme theme, RenderProgress progress){
+        return theme != null ? applyThemeWithLayout(photos, theme.snapshot(), progress) : null;
     }
 
-    public static Image applyThemeWithLayout(List<Photo> photos, Theme theme){
+    public static Image applyThemeWithLayout(List<Photo> photos, ThemeSnapshot theme, RenderProgress progress){
         if (photos == null || photos.isEmpty() || theme == null){
             return null;
         }
 
         if (theme.getLayoutType() == LayoutType.SINGLE) {
-            return applyTheme(photos.get(0), theme);
+            return applyTheme(photos.get(0), theme, progress);
         }
 
-        return composeLayout(photos, theme);
+        return composeLayout(photos, theme, progress);
     }
 
-    private static Image applyFilter(Image image, FilterType filterType, double intensity){
-        return switch (filterType) {
-            case GRAYSCALE ->  ImageUtils.applyGrayscale(image, intensity);
-            case SEPIA -> ImageUtils.applySepia(image, intensity);
-            case VIBRANT -> ImageUtils.applyVibrant(image, intensity);
-            case WARM -> ImageUtils.applyWarmTone(image, intensity);
-            case COOL -> ImageUtils.applyCoolTone(image, intensity);
-            case CONTRAST -> ImageUtils.applyContrast(image, intensity);
-            case BRIGHTNESS -> ImageUtils.applyBrightness(image, intensity);
-            default -> image;
-        };
+    // Reports progress between stages and aborts the render once the worker has been interrupted.
+    private static void checkpoint(RenderProgress progress, long completed, long total){
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Render cancelled");
+        }
+        progress.update(completed, total);
     }
 
-    private static Image addBorder(Image image, Theme theme){
-        int borderWidth = theme.getBorderWidth();
+    private static Runnable tracked(RenderProgress progress, long completed, long total){
+        return () -> checkpoint(progress, completed, total);
+    }
+
+    // Original pixels come from PhotoPixelStore, which already caches them, so this node is not memoized.
+    private static Node decodeNode(Photo photo){
+        return new Node(Key.of("decode").add(photo.getId()).build(), false, photo::getOriginalRaster);
+    }
+
+    private static Node filterNode(Node input, ThemeSnapshot theme, boolean memoized, Runnable done){
+        List<FilterLayer> layers = theme.getFilterLayers();
+        if (layers.isEmpty()) {
+            return input;
+        }
+
+        Key key = Key.of("filter").add(input).add(theme.getFilterParameters()).build();
+        return new Node(key, memoized, () -> {
+            BufferedImage image = input.evaluateCopy();
+            if (image == null) {
+                return null;
+            }
+            applyFilter(image, layers);
+            done.run();
+            return image;
+        });
+    }
+
+    // An image that already fits is passed through, so this owns its result only if the input does.
+    private static Node resizeNode(Node input, int maxWidth, int maxHeight, Runnable done){
+        Key key = Key.of("resize").add(input).add(maxWidth).add(maxHeight).build();
+        return new Node(key, true, input.ownsResult(), () -> {
+            BufferedImage image = input.evaluate();
+            if (image == null) {
+                return null;
+            }
+            image = ImageUtils.resizeRaster(image, maxWidth, maxHeight);
+            done.run();
+            return image;
+        });
+    }
+
+    private static Node borderNode(Node input, ThemeSnapshot theme, double scale, boolean memoized, Runnable done){
+        if (!theme.hasBorder()) {
+            return input;
+        }
+
+        Key key = Key.of("border").add(input).add(theme.getBorderParameters()).add(scale).build();
+        return new Node(key, memoized, () -> {
+            BufferedImage image = input.evaluate();
+            if (image == null) {
+                return null;
+            }
+            image = addBorder(image, theme, scale);
+            done.run();
+            return image;
+        });
+    }
+
+    // The last stage; its output goes to the caller, so it is not memoized.
+    private static Node textNode(Node input, ThemeSnapshot theme, double scale, Runnable done){
+        if (!theme.hasFooterText()) {
+            return input;
+        }
+
+        Key key = Key.of("text").add(input).add(theme.getTextParameters()).add(scale).build();
+        return new Node(key, false, () -> {
+            BufferedImage image = input.evaluateCopy();
+            if (image == null) {
+                return null;
+            }
+            addTextOverlays(image, theme, scale);
+            done.run();
+            return image;
+        });
+    }
+
+    // A single layer keeps its dedicated kernel; stacked layers are fused into one matrix pass.
+    private static void applyFilter(BufferedImage image, List<FilterLayer> layers){
+        if (layers.size() == 1) {
+            FilterLayer layer = layers.get(0);
+            ImageUtils.applyKernel(image, FilterLookupTables.kernelFor(layer.getFilterType(), layer.getIntensity()));
+            return;
+        }
+
+        ColorMatrix fused = fuseFilters(layers);
+        if (!fused.isIdentity()) {
+            ImageUtils.applyKernel(image, fused.toKernel());
+        }
+    }
+
+    public static ColorMatrix fuseFilters(List<FilterLayer> layers){
+        ColorMatrix fused = ColorMatrix.identity();
+        for (FilterLayer layer : layers) {
+            fused = fused.then(ColorMatrix.forFilter(layer.getFilterType(), layer.getIntensity()));
+        }
+        return fused;
+    }
+
+    private static BufferedImage addBorder(BufferedImage original, ThemeSnapshot theme, double scale){
+        int borderWidth = scaled(theme.getBorderWidth(), scale);
         Color borderColor = theme.getBorderColor();
         Color bgColor = theme.getBackgroundColor();
-        int cornerRadius = theme.getCornerRadius();
-
-        BufferedImage original = SwingFXUtils.fromFXImage(image, null);
+        int cornerRadius = scaled(theme.getCornerRadius(), scale);
 
         int originalWidth = original.getWidth();
         int originalHeight = original.getHeight();
@@ -102,30 +258,29 @@ public class ImageProcessor {
         g2d.drawImage(original, borderWidth, borderWidth, null);
 
         if (theme.hasShadow()) {
-            addShadow(g2d, borderWidth, borderWidth, originalWidth, originalHeight);
+            addShadow(g2d, borderWidth, borderWidth, originalWidth, originalHeight, scale);
         }
 
         g2d.dispose();
 
-        return SwingFXUtils.toFXImage(bordered, null);
+        return bordered;
     }
 
-    private static void addShadow(Graphics2D g2d, int x, int y, int width, int height){
-        int shadowOffset = 5;
+    private static void addShadow(Graphics2D g2d, int x, int y, int width, int height, double scale){
+        int shadowOffset = scaled(5, scale);
         int shadowBlur = 10;
         g2d.setColor(new java.awt.Color(0, 0, 0, 50));
         g2d.fillRect(x + shadowOffset, y + shadowOffset, width, height);
     }
 
-    private static Image addTextOverlays(Image image, Theme theme){
-        TextOverlay header = theme.getHeaderText();
-        TextOverlay footer = theme.getFooterText();
+    private static void addTextOverlays(BufferedImage buffered, ThemeSnapshot theme, double scale){
+        Text header = theme.getHeaderText();
+        Text footer = theme.getFooterText();
 
         if (!header.isEnabled() && !footer.isEnabled()) {
-            return image;
+            return;
         }
 
-        BufferedImage buffered = SwingFXUtils.fromFXImage(image, null);
         Graphics2D g2d = buffered.createGraphics();
 
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
@@ -135,20 +290,19 @@ public class ImageProcessor {
         int imageHeight = buffered.getHeight();
 
         if (footer.isEnabled() && !footer.getText().isEmpty()) {
-            drawText(g2d, footer, imageWidth, imageHeight - 30);
+            drawText(g2d, footer, imageWidth, imageHeight - scaled(30, scale), scale);
         }
 
         g2d.dispose();
-
-        return SwingFXUtils.toFXImage(buffered, null);
     }
 
-    private static void drawText(Graphics2D g2d, TextOverlay textOverlay, int imageWidth, int yPosition){
+    private static void drawText(Graphics2D g2d, Text textOverlay, int imageWidth, int yPosition,
+                                 double scale){
         String text = textOverlay.getText();
         Font font = new Font(
                 textOverlay.getFontFamily(),
                 textOverlay.getFontWeight() == FontWeight.BOLD ? Font.BOLD : Font.PLAIN,
-                textOverlay.getFontSize()
+                scaled(textOverlay.getFontSize(), scale)
                 );
         g2d.setFont(font);
         g2d.setColor(toAwtColor(textOverlay.getTextColor()));
@@ -173,31 +327,58 @@ public class ImageProcessor {
         g2d.drawString(text, x, y);
     }
 
-    private static Image composeLayout(List<Photo> photos, Theme theme){
+    private static Image composeLayout(List<Photo> photos, ThemeSnapshot theme, RenderProgress progress){
+        return ImageUtils.toFXImage(layoutNode(slot -> decodeNode(photos.get(slot)), photos.size(),
+                theme, progress).evaluate());
+    }
+
+    // Each slot is resize -> filter, so only slot-size rasters are filtered and memoized, and a
+    // filter edit reuses the resized slots. The canvas node places the slots on the background
+    // and the text node draws over it, so a text edit finds the canvas memoized and costs one pass.
+    private static Node layoutNode(SlotSource source, int available, ThemeSnapshot theme, RenderProgress progress){
         LayoutType layout = theme.getLayoutType();
+        int slots = Math.min(layout.getSlots(), available);
+        Node[] slotNodes = new Node[slots];
+        Key.Builder canvasKey = Key.of("canvas").add(theme.getCanvasParameters());
+
+        for (int i = 0; i < slots; i++) {
+            int[] size = slotSize(layout, i);
+            Node resized = resizeNode(source.node(i), size[0], size[1], tracked(progress, i + 1, slots + 1));
+            slotNodes[i] = filterNode(resized, theme, true, () -> { });
+            canvasKey.add(slotNodes[i]);
+        }
+
+        Node canvas = new Node(canvasKey.build(), true, () -> {
+            BufferedImage[] rendered = new BufferedImage[slots];
+            for (int i = 0; i < slots; i++) {
+                rendered[i] = slotNodes[i].evaluate();
+            }
+            return switch (layout) {
+                case STRIP_2 -> composeStrip(rendered, theme, 2, true);
+                case STRIP_4 -> composeStrip(rendered, theme, 4, true);
+                case COLLAGE_2x2 -> composeCollage2x2(rendered, theme);
+                case COLLAGE_3 -> composeCollage3(rendered, theme);
+                default -> throw new IllegalArgumentException("Not a layout theme: " + layout);
+            };
+        });
+        return textNode(canvas, theme, 1.0, tracked(progress, slots + 1, slots + 1));
+    }
 
+    private static int[] slotSize(LayoutType layout, int slot) {
         return switch (layout) {
-            case STRIP_2 -> composeStrip(photos, theme, 2, true);
-            case STRIP_4 -> composeStrip(photos, theme, 4, true);
-            case COLLAGE_2x2 -> composeCollage2x2(photos, theme);
-            case COLLAGE_3 -> composeCollage3(photos, theme);
-            default -> applyTheme(photos.get(0), theme);
+            case COLLAGE_2x2 -> new int[]{COLLAGE_PHOTO_SIZE, COLLAGE_PHOTO_SIZE};
+            case COLLAGE_3 -> slot == 0
+                    ? new int[]{COLLAGE_LARGE_WIDTH, COLLAGE_LARGE_HEIGHT}
+                    : new int[]{COLLAGE_SMALL_WIDTH, COLLAGE_SMALL_HEIGHT};
+            default -> new int[]{STRIP_PHOTO_WIDTH, STRIP_PHOTO_HEIGHT};
         };
     }
 
-    private static Image composeStrip(List<Photo> photos, Theme theme, int count, boolean vertical) {
-        int photoWidth = 600;
-        int photoHeight = 400;
-        int spacing = 10;
-
-        BufferedImage[] processed = new BufferedImage[count];
-        for (int i = 0; i < count && i < photos.size(); i++) {
-            Image filtered = applyFilter(photos.get(i).getOriginalImage(),
-                    theme.getFilterType(),
-                    theme.getFilterIntensity());
-            Image resized = ImageUtils.resizeImage(filtered, photoWidth, photoHeight);
-            processed[i] = SwingFXUtils.fromFXImage(resized, null);
-        }
+    private static BufferedImage composeStrip(BufferedImage[] processed, ThemeSnapshot theme, int count,
+                                              boolean vertical) {
+        int photoWidth = STRIP_PHOTO_WIDTH;
+        int photoHeight = STRIP_PHOTO_HEIGHT;
+        int spacing = LAYOUT_SPACING;
 
         int canvasWidth, canvasHeight;
         if (vertical) {
@@ -233,14 +414,12 @@ public class ImageProcessor {
         }
 
         g2d.dispose();
-
-        Image result = SwingFXUtils.toFXImage(canvas, null);
-        return addTextOverlays(result, theme);
+        return canvas;
     }
 
-    private static Image composeCollage2x2(List<Photo> photos, Theme theme) {
-        int photoSize = 400;
-        int spacing = 10;
+    private static BufferedImage composeCollage2x2(BufferedImage[] processed, ThemeSnapshot theme) {
+        int photoSize = COLLAGE_PHOTO_SIZE;
+        int spacing = LAYOUT_SPACING;
         int borderWidth = theme.getBorderWidth();
 
         int canvasWidth = (photoSize * 2) + spacing + (borderWidth * 2);
@@ -261,31 +440,22 @@ public class ImageProcessor {
                 {borderWidth + photoSize + spacing, borderWidth + photoSize + spacing}
         };
 
-        for (int i = 0; i < 4 && i < photos.size(); i++) {
-            Image filtered = applyFilter(photos.get(i).getOriginalImage(),
-                    theme.getFilterType(),
-                    theme.getFilterIntensity());
-            Image resized = ImageUtils.resizeImage(filtered, photoSize, photoSize);
-            BufferedImage buffered = SwingFXUtils.fromFXImage(resized, null);
-
-            g2d.drawImage(buffered, positions[i][0], positions[i][1], null);
+        for (int i = 0; i < processed.length && i < positions.length; i++) {
+            g2d.drawImage(processed[i], positions[i][0], positions[i][1], null);
         }
 
         g2d.dispose();
-
-        Image result = SwingFXUtils.toFXImage(canvas, null);
-        return addTextOverlays(result, theme);
+        return canvas;
     }
 
-    private static Image composeCollage3(List<Photo> photos, Theme theme) {
-        int largePhotoWidth = 600;
-        int largePhotoHeight = 800;
-        int smallPhotoWidth = 300;
-        int smallPhotoHeight = 400;
-        int spacing = 10;
+    private static BufferedImage composeCollage3(BufferedImage[] processed, ThemeSnapshot theme) {
+        int largePhotoWidth = COLLAGE_LARGE_WIDTH;
+        int largePhotoHeight = COLLAGE_LARGE_HEIGHT;
+        int smallPhotoHeight = COLLAGE_SMALL_HEIGHT;
+        int spacing = LAYOUT_SPACING;
         int borderWidth = theme.getBorderWidth();
 
-        int canvasWidth = largePhotoWidth + smallPhotoWidth + spacing + (borderWidth * 2);
+        int canvasWidth = largePhotoWidth + COLLAGE_SMALL_WIDTH + spacing + (borderWidth * 2);
         int canvasHeight = largePhotoHeight + (borderWidth * 2);
 
         BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight,
@@ -296,29 +466,22 @@ public class ImageProcessor {
         g2d.setColor(toAwtColor(theme.getBackgroundColor()));
         g2d.fillRect(0, 0, canvasWidth, canvasHeight);
 
-        if (!photos.isEmpty()) {
-            Image filtered = applyFilter(photos.get(0).getOriginalImage(),
-                    theme.getFilterType(), theme.getFilterIntensity());
-            Image resized = ImageUtils.resizeImage(filtered, largePhotoWidth, largePhotoHeight);
-            BufferedImage buffered = SwingFXUtils.fromFXImage(resized, null);
-            g2d.drawImage(buffered, borderWidth, borderWidth, null);
+        if (processed.length > 0) {
+            g2d.drawImage(processed[0], borderWidth, borderWidth, null);
         }
 
         int smallX = borderWidth + largePhotoWidth + spacing;
-        for (int i = 1; i < 3 && i < photos.size(); i++) {
-            Image filtered = applyFilter(photos.get(i).getOriginalImage(),
-                    theme.getFilterType(), theme.getFilterIntensity());
-            Image resized = ImageUtils.resizeImage(filtered, smallPhotoWidth, smallPhotoHeight);
-            BufferedImage buffered = SwingFXUtils.fromFXImage(resized, null);
-
+        for (int i = 1; i < processed.length && i < 3; i++) {
             int smallY = borderWidth + ((i - 1) * (smallPhotoHeight + spacing));
-            g2d.drawImage(buffered, smallX, smallY, null);
+            g2d.drawImage(processed[i], smallX, smallY, null);
         }
 
         g2d.dispose();
+        return canvas;
+    }
 
-        Image result = SwingFXUtils.toFXImage(canvas, null);
-        return addTextOverlays(result, theme);
+    private static int scaled(int size, double scale) {
+        return size > 0 ? Math.max(1, (int) Math.round(size * scale)) : 0;
     }
 
     private static java.awt.Color toAwtColor(Color fxColor) {
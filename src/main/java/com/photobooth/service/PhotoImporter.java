@@ -0,0 +1,234 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.util.ImageUtils;
+import com.photobooth.util.ImageMetadata;
+import com.photobooth.util.ThumbnailDiskCache;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PhotoImporter {
+
+    private final PhotoManager photoManager;
+    private final ExecutorService decodeExecutor;
+    private final Executor deliveryExecutor;
+
+    public interface ImportListener {
+        default void onPhotoImported(Photo photo, int completed, int total) { }
+        default void onImportFailed(File file, String reason, int completed, int total) { }
+        default void onDuplicateSkipped(File file, Photo existing, int completed, int total) { }
+        default void onImportFinished(int imported, int failed, boolean cancelled) { }
+    }
+
+    public PhotoImporter(PhotoManager photoManager) {
+        this(photoManager, TaskExecutors.imports(), Platform::runLater);
+    }
+
+    // PhotoManager is not thread-safe, so photos and callbacks are handed over on the delivery executor.
+    public PhotoImporter(PhotoManager photoManager, ExecutorService decodeExecutor, Executor deliveryExecutor) {
+        this.photoManager = photoManager;
+        this.decodeExecutor = decodeExecutor;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public ImportJob importFiles(List<File> files, ImportListener listener) {
+        ImportJob job = new ImportJob(files.size(), listener);
+        if (files.isEmpty()) {
+            job.finish();
+            return job;
+        }
+
+        for (File file : files) {
+            job.track(decodeExecutor.submit(() -> decode(job, file)));
+        }
+        return job;
+    }
+
+    private void decode(ImportJob job, File file) {
+        if (job.isCancelled()) {
+            return;
+        }
+
+        Photo photo = null;
+        String failure = null;
+        if (!ImageUtils.isSupportedImageFile(file)) {
+            failure = "Unsupported image file";
+        } else {
+            photo = fromThumbnailCache(file);
+            if (photo == null) {
+                photo = fromMetadata(file);
+                if (photo != null) {
+                    ThumbnailDiskCache.put(file, photo.getThumbnail(), (int) photo.getWidth(),
+                            (int) photo.getHeight(), photo.getOrientation());
+                }
+            }
+            if (photo == null) {
+                Image image = ImageUtils.loadImage(file);
+                if (image == null) {
+                    failure = "Could not decode image";
+                } else {
+                    photo = new Photo(file, image);
+                }
+            }
+        }
+
+        // Done here, off the delivery thread: the perceptual hash from the thumbnail the photo
+        // already has, and the duplicate check, which reads files only on a length match.
+        Photo duplicate = null;
+        if (photo != null) {
+            photo.getPerceptualHash();
+            duplicate = photoManager.findDuplicate(photo);
+        }
+
+        Photo decoded = photo;
+        Photo checked = duplicate;
+        String reason = failure;
+        deliveryExecutor.execute(() -> job.deliver(file, decoded, checked, reason));
+    }
+
+    // A file seen before, unchanged, needs neither a header read nor a decode.
+    private Photo fromThumbnailCache(File file) {
+        ThumbnailDiskCache.Entry cached = ThumbnailDiskCache.get(file);
+        if (cached == null) {
+            return null;
+        }
+        return new Photo(file, cached.getThumbnail(), cached.getWidth(), cached.getHeight(),
+                cached.getOrientation());
+    }
+
+    // Header-only probe; the EXIF preview doubles as the thumbnail when the camera wrote one.
+    // The original is decoded later through PhotoPixelStore.
+    private Photo fromMetadata(File file) {
+        ImageMetadata metadata = ImageMetadata.probe(file);
+        if (metadata == null) {
+            return null;
+        }
+
+        Image thumbnail = metadata.hasEmbeddedThumbnail()
+                ? ImageUtils.decodeImage(metadata.getEmbeddedThumbnail())
+                : null;
+        if (thumbnail == null) {
+            thumbnail = ImageUtils.loadThumbnail(file);
+        }
+        if (thumbnail == null) {
+            return null;
+        }
+        return new Photo(file, thumbnail, metadata.getWidth(), metadata.getHeight(), metadata.getOrientation());
+    }
+
+    public class ImportJob {
+        private final int total;
+        private final ImportListener listener;
+        private final Queue<Future<?>> futures;
+        private final AtomicBoolean cancelled;
+        private final AtomicBoolean finished;
+        private final AtomicInteger completed;
+        private int imported;
+        private int failed;
+        private int duplicates;
+        private int similar;
+
+        private ImportJob(int total, ImportListener listener) {
+            this.total = total;
+            this.listener = listener;
+            this.futures = new ConcurrentLinkedQueue<>();
+            this.cancelled = new AtomicBoolean(false);
+            this.finished = new AtomicBoolean(false);
+            this.completed = new AtomicInteger();
+        }
+
+        // Runs on the delivery executor.
+        // The worker's duplicate check is rechecked here only if its match has since gone, or
+        // for photos added after it ran; both are cheap unless a same-length file is loaded.
+        private void deliver(File file, Photo photo, Photo checked, String failure) {
+            if (isCancelled()) {
+                if (photo != null) {
+                    photo.releasePixels();
+                }
+                return;
+            }
+
+            int done = completed.incrementAndGet();
+            Photo existing = checked != null && photoManager.contains(checked) ? checked
+                    : photo != null ? photoManager.findDuplicate(photo) : null;
+            if (existing != null) {
+                photo.releasePixels();
+                duplicates++;
+                System.out.println("Skipped duplicate: " + file.getName() + " is the same file as " + existing.getFileName());
+                listener.onDuplicateSkipped(file, existing, done, total);
+            } else if (photo != null) {
+                photoManager.addPhoto(photo);
+                imported++;
+                if (photo.getSimilarPhoto() != null) {
+                    similar++;
+                    System.out.println("Possible duplicate: " + file.getName() + " looks like " +
+                            photo.getSimilarPhoto().getFileName());
+                }
+                listener.onPhotoImported(photo, done, total);
+            } else {
+                failed++;
+                System.err.println("Failed to import " + file + ": " + failure);
+                listener.onImportFailed(file, failure, done, total);
+            }
+
+            if (done == total) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                System.out.println("Imported: " + imported + " of " + total + " photos" +
+                        (duplicates > 0 ? ", " + duplicates + " duplicates skipped" : "") +
+                        (similar > 0 ? ", " + similar + " possible duplicates flagged" : "") +
+                        (isCancelled() ? " (cancelled)" : ""));
+                listener.onImportFinished(imported, failed, isCancelled());
+            }
+        }
+
+        // A job may be cancelled from another thread while its files are still being submitted;
+        // a future added after the cancel sweep is cancelled here instead.
+        private void track(Future<?> future) {
+            futures.add(future);
+            if (isCancelled()) {
+                future.cancel(true);
+            }
+        }
+
+        public void cancel() {
+            if (finished.get() || !cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            deliveryExecutor.execute(this::finish);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public boolean isDone() {
+            return finished.get();
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompleted() {
+            return completed.get();
+        }
+    }
+}
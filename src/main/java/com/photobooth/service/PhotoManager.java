@@ -2,26 +2,61 @@ package com.photobooth.service;
 
 import com.photobooth.model.Photo;
 import com.photobooth.model.Theme;
+import com.photobooth.util.HammingIndex;
+import com.photobooth.util.ImageMetadata;
 import com.photobooth.util.ImageUtils;
+import com.photobooth.util.PerceptualHash;
 import javafx.scene.image.Image;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import static com.photobooth.util.Constants.*;
+
 public class PhotoManager {
 
     private final List<Photo> photos;
     private Photo selectedPhoto;
     private final List<Photo> selectedPhotos;
+    private final Map<Photo, Integer> photoIndex;
+    private final HammingIndex<Photo> similarityIndex;
+    private final Map<Long, Set<Photo>> contentIndex;
+    private final List<PhotoChangeListener> changeListeners;
+
+    // Fine-grained notifications so views can apply diffs instead of rebuilding. Indices are
+    // positions in getAllPhotos() at the time of the change.
+    public interface PhotoChangeListener {
+        default void onPhotoAdded(Photo photo, int index) { }
+        default void onPhotoRemoved(Photo photo, int index) { }
+        default void onPhotoUpdated(Photo photo, int index) { }
+        default void onSelectionChanged(Photo previous, Photo selected) { }
+        default void onPhotosCleared() { }
+    }
 
     public PhotoManager() {
         this.photos = new ArrayList<>();
         this.selectedPhoto = null;
         this.selectedPhotos = new ArrayList<>();
+        this.photoIndex = new HashMap<>();
+        this.similarityIndex = new HammingIndex<>();
+        this.contentIndex = new ConcurrentHashMap<>();
+        this.changeListeners = new ArrayList<>();
+    }
+
+    public void addChangeListener(PhotoChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(PhotoChangeListener listener) {
+        changeListeners.remove(listener);
     }
 
     public Photo addPhoto(File file) {
@@ -30,16 +65,33 @@ public class PhotoManager {
             return null;
         }
 
-        Image image = ImageUtils.loadImage(file);
-        if (image == null){
-            System.err.println("Failed to load image: " + file);
-            return null;
+        // Only the headers are read here; pixels are decoded when the photo is first shown or rendered.
+        ImageMetadata metadata = ImageMetadata.probe(file);
+        Photo photo;
+        if (metadata != null) {
+            photo = new Photo(file, metadata);
+        } else {
+            Image image = ImageUtils.loadImage(file);
+            if (image == null){
+                System.err.println("Failed to load image: " + file);
+                return null;
+            }
+            photo = new Photo(file, image);
         }
 
-        Photo photo = new Photo(file, image);
-        photos.add(photo);
+        Photo duplicate = findDuplicate(photo);
+        if (duplicate != null) {
+            photo.releasePixels();
+            System.out.println("Skipped duplicate: " + file.getName() + " is the same file as " + duplicate.getFileName());
+            return null;
+        }
+        addPhoto(photo);
 
         System.out.println("Photo added: " + photo.getFileName() + " (" + photo.getFileSizeFormatted() + ")");
+        if (photo.getSimilarPhoto() != null) {
+            System.out.println("Possible duplicate: " + photo.getFileName() + " looks like " +
+                    photo.getSimilarPhoto().getFileName());
+        }
 
         return photo;
     }
@@ -59,10 +111,68 @@ public class PhotoManager {
         return successCount;
     }
 
+    // A photo that looks like one already loaded is still added, flagged through getSimilarPhoto().
     public void addPhoto(Photo photo) {
-        if (photo != null && !photos.contains(photo)) {
+        if (photo != null && !contains(photo)) {
+            photo.setSimilarPhoto(findSimilar(photo));
+            int index = photos.size();
             photos.add(photo);
+            photoIndex.put(photo, index);
+            if (PerceptualHash.isDistinctive(photo.getPerceptualHash())) {
+                similarityIndex.add(photo.getPerceptualHash(), photo);
+            }
+            contentIndex.computeIfAbsent(photo.getContentLength(), length -> ConcurrentHashMap.newKeySet())
+                    .add(photo);
+            for (PhotoChangeListener listener : List.copyOf(changeListeners)) {
+                listener.onPhotoAdded(photo, index);
+            }
+        }
+    }
+
+    // Call after changing a photo's processed image or theme so views can redraw just that photo.
+    public void notifyPhotoUpdated(Photo photo) {
+        int index = indexOf(photo);
+        if (index < 0) {
+            return;
+        }
+        for (PhotoChangeListener listener : List.copyOf(changeListeners)) {
+            listener.onPhotoUpdated(photo, index);
+        }
+    }
+
+    public boolean contains(Photo photo) {
+        return photo != null && photoIndex.containsKey(photo);
+    }
+
+    public int indexOf(Photo photo) {
+        Integer index = photo != null ? photoIndex.get(photo) : null;
+        return index != null ? index : -1;
+    }
+
+    // The same file content imported again, which is safe to skip; null when the photo is new.
+    // Files are only read when a loaded photo has exactly the same length. The index is
+    // concurrent, so import workers may call this to check before delivery.
+    public Photo findDuplicate(Photo photo) {
+        Set<Photo> sameLength = contentIndex.get(photo.getContentLength());
+        if (sameLength == null) {
+            return null;
+        }
+        for (Photo candidate : sameLength) {
+            if (candidate != photo && photo.hasSameContents(candidate)) {
+                return candidate;
+            }
         }
+        return null;
+    }
+
+    // A loaded photo within SIMILAR_PHOTO_HASH_DISTANCE of this one's perceptual hash. Consecutive
+    // burst shots land this close, so a match is only ever flagged, never skipped.
+    public Photo findSimilar(Photo photo) {
+        if (!PerceptualHash.isDistinctive(photo.getPerceptualHash())) {
+            return null;
+        }
+        Photo match = similarityIndex.findNearest(photo.getPerceptualHash(), SIMILAR_PHOTO_HASH_DISTANCE);
+        return match != photo ? match : null;
     }
 
     public boolean removePhoto(Photo photo) {
@@ -70,19 +180,44 @@ public class PhotoManager {
             return false;
         }
 
+        Integer index = photoIndex.remove(photo);
+        if (index == null) {
+            return false;
+        }
+
         if (selectedPhoto == photo) {
-            selectedPhoto = null;
+            setSelectedPhoto(null);
         }
 
         selectedPhotos.remove(photo);
 
-        boolean removed = photos.remove(photo);
+        photos.remove((int) index);
+        for (int i = index; i < photos.size(); i++) {
+            photoIndex.put(photos.get(i), i);
+        }
 
-        if (removed) {
-            System.out.println("Photo removed: " + photo.getFileName());
+        similarityIndex.remove(photo.getPerceptualHash(), photo);
+        contentIndex.computeIfPresent(photo.getContentLength(), (length, sameLength) -> {
+            sameLength.remove(photo);
+            return sameLength.isEmpty() ? null : sameLength;
+        });
+        photo.releasePixels();
+        RenderCache.invalidate(photo);
+        // Graph keys are hashes, so the removed photo's nodes cannot be picked out.
+        RenderGraph.clear();
+        System.out.println("Photo removed: " + photo.getFileName());
+
+        for (PhotoChangeListener listener : List.copyOf(changeListeners)) {
+            listener.onPhotoRemoved(photo, index);
         }
 
-        return removed;
+        for (Photo remaining : List.copyOf(photos)) {
+            if (remaining.getSimilarPhoto() == photo) {
+                remaining.setSimilarPhoto(null);
+                notifyPhotoUpdated(remaining);
+            }
+        }
+        return true;
     }
 
     public boolean removePhotoById(String id) {
@@ -91,30 +226,53 @@ public class PhotoManager {
     }
 
     public void clearAll() {
+        for (Photo photo : photos) {
+            photo.releasePixels();
+        }
+        RenderCache.clear();
+        RenderGraph.clear();
         photos.clear();
+        photoIndex.clear();
+        similarityIndex.clear();
+        contentIndex.clear();
         selectedPhoto = null;
         selectedPhotos.clear();
         System.out.println("All photos cleared");
+
+        for (PhotoChangeListener listener : List.copyOf(changeListeners)) {
+            listener.onPhotosCleared();
+        }
     }
 
     public void selectPhoto(Photo photo) {
-        if (photo != null && photos.contains(photo)){
-            this.selectedPhoto = photo;
+        if (contains(photo)){
+            setSelectedPhoto(photo);
             System.out.println("Photo selected: " + photo.getFileName());
         }
     }
 
+    private void setSelectedPhoto(Photo photo) {
+        Photo previous = selectedPhoto;
+        if (previous == photo) {
+            return;
+        }
+        selectedPhoto = photo;
+        for (PhotoChangeListener listener : List.copyOf(changeListeners)) {
+            listener.onSelectionChanged(previous, photo);
+        }
+    }
+
     public void selectPhotoById(String id) {
         findPhotoById(id).ifPresent(this::selectPhoto);
     }
 
     public void clearSelection() {
-        this.selectedPhoto = null;
+        setSelectedPhoto(null);
         this.selectedPhotos.clear();
     }
 
     public void addToSelection(Photo photo) {
-        if (photo != null && photos.contains(photo) && !selectedPhotos.contains(photo)) {
+        if (contains(photo) && !selectedPhotos.contains(photo)) {
             selectedPhotos.add(photo);
         }
     }
@@ -126,7 +284,7 @@ public class PhotoManager {
     public void selectMultiplePhotos(List<Photo> photoList) {
         selectedPhotos.clear();
         for (Photo photo : photoList) {
-            if (photos.contains(photo)) {
+            if (contains(photo)) {
                 selectedPhotos.add(photo);
             }
         }
@@ -202,6 +360,7 @@ public class PhotoManager {
     public void applyThemeToSelected(Theme theme) {
         if (selectedPhoto != null && theme != null) {
             selectedPhoto.setAppliedTheme(theme);
+            notifyPhotoUpdated(selectedPhoto);
             System.out.println("Theme '" + theme.getName() +
                     "' applied to " + selectedPhoto.getFileName());
         }
@@ -210,26 +369,15 @@ public class PhotoManager {
     public void removeThemeFromSelected() {
         if (selectedPhoto != null) {
             selectedPhoto.resetToOriginal();
+            notifyPhotoUpdated(selectedPhoto);
             System.out.println("Theme removed from " + selectedPhoto.getFileName());
         }
     }
 
-    public void applyThemeToAll(Theme theme) {
-        if (theme == null) {
-            return;
-        }
-
-        for (Photo photo : photos) {
-            photo.setAppliedTheme(theme);
-        }
-
-        System.out.println("Theme '" + theme.getName() +
-                "' applied to all " + photos.size() + " photos");
-    }
-
     public void removeThemeFromAll() {
         for (Photo photo : photos) {
             photo.resetToOriginal();
+            notifyPhotoUpdated(photo);
         }
         System.out.println("Themes removed from all photos");
     }
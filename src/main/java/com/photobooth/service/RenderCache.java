@@ -0,0 +1,198 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.model.ThemeSnapshot;
+import com.photobooth.util.PhotoPixelStore;
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.photobooth.util.Constants.*;
+
+// Finished renders under a byte budget, evicting the least recently used. Entries are keyed by
+// the source photos, the theme snapshot and the output size, so flipping back to a look that
+// was already rendered costs a lookup. Rendered images are shared and must not be written to.
+// Full-size outputs and downsized previews are budgeted separately, so one large render can
+// never evict the theme-card previews. PhotoManager drops a photo's entries when it is removed.
+public class RenderCache {
+
+    // Output size for a full render, which is whatever size the layout produces.
+    public static final int NATIVE_SIZE = 0;
+
+    private static final Partition OUTPUTS = new Partition(Long.getLong("photobooth.render.cache.mb",
+            RENDER_CACHE_BUDGET_MB) * 1024 * 1024);
+    private static final Partition PREVIEWS = new Partition(Long.getLong("photobooth.preview.cache.mb",
+            PREVIEW_CACHE_BUDGET_MB) * 1024 * 1024);
+
+    private static long hits;
+    private static long misses;
+
+    private RenderCache() {
+        throw new AssertionError("Cannot instantiate RenderCache class");
+    }
+
+    private static class Key {
+        private final List<String> photoIds;
+        private final ThemeSnapshot theme;
+        private final int width;
+        private final int height;
+
+        Key(List<Photo> photos, ThemeSnapshot theme, int width, int height) {
+            this.photoIds = new ArrayList<>(photos.size());
+            for (Photo photo : photos) {
+                photoIds.add(photo.getId());
+            }
+            this.theme = theme;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height
+                    && photoIds.equals(key.photoIds) && theme.equals(key.theme);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(photoIds, theme, width, height);
+        }
+    }
+
+    // One LRU map with its own budget; all access is under the RenderCache class lock.
+    private static class Partition {
+        private final Map<Key, Image> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long budgetBytes;
+        private long usedBytes;
+        private long evictions;
+
+        Partition(long budgetBytes) {
+            this.budgetBytes = budgetBytes;
+        }
+
+        // An output larger than the whole budget is not kept.
+        void put(Key key, Image output) {
+            long size = PhotoPixelStore.sizeOf(output);
+            if (size > budgetBytes) {
+                return;
+            }
+            Image previous = entries.put(key, output);
+            if (previous != null) {
+                usedBytes -= PhotoPixelStore.sizeOf(previous);
+            }
+            usedBytes += size;
+            evictToBudget();
+        }
+
+        void invalidate(String photoId) {
+            Iterator<Map.Entry<Key, Image>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Image> entry = iterator.next();
+                if (entry.getKey().photoIds.contains(photoId)) {
+                    usedBytes -= PhotoPixelStore.sizeOf(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            usedBytes = 0;
+        }
+
+        void setBudgetBytes(long bytes) {
+            budgetBytes = Math.max(0, bytes);
+            evictToBudget();
+        }
+
+        private void evictToBudget() {
+            Iterator<Map.Entry<Key, Image>> iterator = entries.entrySet().iterator();
+            while (usedBytes > budgetBytes && iterator.hasNext()) {
+                Map.Entry<Key, Image> eldest = iterator.next();
+                usedBytes -= PhotoPixelStore.sizeOf(eldest.getValue());
+                iterator.remove();
+                evictions++;
+            }
+        }
+
+        String describe(String name) {
+            return String.format("%d %s, %.1f of %.1f MB, %d evictions", entries.size(), name,
+                    usedBytes / (1024.0 * 1024.0), budgetBytes / (1024.0 * 1024.0), evictions);
+        }
+    }
+
+    private static Partition partitionFor(int width, int height) {
+        return width == NATIVE_SIZE && height == NATIVE_SIZE ? OUTPUTS : PREVIEWS;
+    }
+
+    public static synchronized Image get(List<Photo> photos, ThemeSnapshot theme, int width, int height) {
+        Image cached = partitionFor(width, height).entries.get(new Key(photos, theme, width, height));
+        if (cached == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return cached;
+    }
+
+    public static synchronized void put(List<Photo> photos, ThemeSnapshot theme, int width, int height,
+                                        Image output) {
+        partitionFor(width, height).put(new Key(photos, theme, width, height), output);
+    }
+
+    // Drops every output and preview the photo contributed to, layouts included.
+    public static synchronized void invalidate(Photo photo) {
+        OUTPUTS.invalidate(photo.getId());
+        PREVIEWS.invalidate(photo.getId());
+    }
+
+    public static synchronized void clear() {
+        OUTPUTS.clear();
+        PREVIEWS.clear();
+    }
+
+    public static synchronized void setBudgetBytes(long bytes) {
+        OUTPUTS.setBudgetBytes(bytes);
+    }
+
+    public static synchronized long getBudgetBytes() {
+        return OUTPUTS.budgetBytes;
+    }
+
+    public static synchronized void setPreviewBudgetBytes(long bytes) {
+        PREVIEWS.setBudgetBytes(bytes);
+    }
+
+    public static synchronized long getPreviewBudgetBytes() {
+        return PREVIEWS.budgetBytes;
+    }
+
+    public static synchronized long getUsedBytes() {
+        return OUTPUTS.usedBytes + PREVIEWS.usedBytes;
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getEvictions() {
+        return OUTPUTS.evictions + PREVIEWS.evictions;
+    }
+
+    public static synchronized String getStatistics() {
+        return String.format("Render cache: %s; %s; %d hits, %d misses",
+                OUTPUTS.describe("outputs"), PREVIEWS.describe("previews"), hits, misses);
+    }
+}
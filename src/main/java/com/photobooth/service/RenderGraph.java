@@ -0,0 +1,215 @@
+package com.photobooth.service;
+
+import com.photobooth.util.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.photobooth.util.Constants.*;
+
+// Memoizes intermediate render results under a byte budget, evicting the least recently used.
+// Each stage node is keyed by its own parameters and the keys of its inputs, compared by value,
+// so changing one parameter changes the keys from that stage downstream only; everything upstream
+// is still found here and never re-executes. Nodes are evaluated lazily, from the output back.
+public class RenderGraph {
+
+    // Nodes fed from pixels with no stable identity, such as a preview proxy, are never memoized.
+    public static final Key TRANSIENT = new Key("transient", List.of(), List.of());
+
+    private static final Map<Key, BufferedImage> RESULTS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long budgetBytes = Long.getLong("photobooth.render.graph.mb",
+            RENDER_GRAPH_BUDGET_MB) * 1024 * 1024;
+    private static long usedBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private RenderGraph() {
+        throw new AssertionError("Cannot instantiate RenderGraph class");
+    }
+
+    @FunctionalInterface
+    public interface Stage {
+        BufferedImage run();
+    }
+
+    public static class Node {
+        private final Key key;
+        private final boolean memoized;
+        private final boolean owned;
+        private final Stage stage;
+
+        public Node(Key key, boolean memoized, Stage stage) {
+            this(key, memoized, true, stage);
+        }
+
+        // owned is false when the stage may return a raster someone else also holds, such as a
+        // preview proxy, or its input passed through unchanged.
+        public Node(Key key, boolean memoized, boolean owned, Stage stage) {
+            this.key = key;
+            this.memoized = memoized && key != TRANSIENT;
+            this.owned = owned;
+            this.stage = stage;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        // True when each evaluation returns a fresh raster that nothing else refers to.
+        public boolean ownsResult() {
+            return owned && !memoized;
+        }
+
+        // Memoized results are shared with later renders and must not be modified.
+        public BufferedImage evaluate() {
+            if (!memoized) {
+                return stage.run();
+            }
+            BufferedImage cached = get(key);
+            if (cached != null) {
+                return cached;
+            }
+            BufferedImage result = stage.run();
+            if (result != null) {
+                put(key, result);
+            }
+            return result;
+        }
+
+        // A raster the caller owns and may draw into.
+        public BufferedImage evaluateCopy() {
+            BufferedImage result = evaluate();
+            return !ownsResult() && result != null ? ImageUtils.copyRaster(result) : result;
+        }
+    }
+
+    // The stage name, its parameters and its input keys. Parameters must compare by value, like
+    // the snapshot's per-stage lists; any transient input makes the whole key transient.
+    public static final class Key {
+        private final String stage;
+        private final List<Object> parameters;
+        private final List<Key> inputs;
+        private final int hash;
+
+        private Key(String stage, List<Object> parameters, List<Key> inputs) {
+            this.stage = stage;
+            this.parameters = parameters;
+            this.inputs = inputs;
+            this.hash = Objects.hash(stage, parameters, inputs);
+        }
+
+        public static Builder of(String stage) {
+            return new Builder(stage);
+        }
+
+        public static class Builder {
+            private final String stage;
+            private final List<Object> parameters = new ArrayList<>();
+            private final List<Key> inputs = new ArrayList<>();
+            private boolean transientInput;
+
+            private Builder(String stage) {
+                this.stage = stage;
+            }
+
+            public Builder add(Node input) {
+                if (input.getKey() == TRANSIENT) {
+                    transientInput = true;
+                }
+                inputs.add(input.getKey());
+                return this;
+            }
+
+            public Builder add(Object parameter) {
+                parameters.add(parameter);
+                return this;
+            }
+
+            public Key build() {
+                return transientInput ? TRANSIENT : new Key(stage, new ArrayList<>(parameters), List.copyOf(inputs));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hash == key.hash && stage.equals(key.stage)
+                    && parameters.equals(key.parameters) && inputs.equals(key.inputs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static synchronized BufferedImage get(Key key) {
+        BufferedImage cached = RESULTS.get(key);
+        if (cached == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return cached;
+    }
+
+    private static synchronized void put(Key key, BufferedImage result) {
+        long size = sizeOf(result);
+        if (size > budgetBytes) {
+            return;
+        }
+        BufferedImage previous = RESULTS.put(key, result);
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+        usedBytes += size;
+        evictToBudget();
+    }
+
+    public static synchronized void clear() {
+        RESULTS.clear();
+        usedBytes = 0;
+    }
+
+    public static synchronized void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(0, bytes);
+        evictToBudget();
+    }
+
+    public static synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public static synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public static synchronized String getStatistics() {
+        return String.format("Render graph: %d nodes, %.1f of %.1f MB, %d hits, %d misses, %d evictions",
+                RESULTS.size(), usedBytes / (1024.0 * 1024.0), budgetBytes / (1024.0 * 1024.0),
+                hits, misses, evictions);
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    private static void evictToBudget() {
+        Iterator<Map.Entry<Key, BufferedImage>> iterator = RESULTS.entrySet().iterator();
+        while (usedBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = iterator.next();
+            usedBytes -= sizeOf(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
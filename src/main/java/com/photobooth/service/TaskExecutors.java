@@ -0,0 +1,112 @@
+package com.photobooth.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.photobooth.util.Constants.*;
+
+public class TaskExecutors {
+
+    private static ExecutorService renderExecutor;
+    private static ExecutorService importExecutor;
+    private static ExecutorService thumbnailExecutor;
+    private static ExecutorService previewExecutor;
+    private static ExecutorService batchRenderExecutor;
+
+    private TaskExecutors() {
+        throw new AssertionError("Cannot instantiate TaskExecutors class");
+    }
+
+    // Theme renders run one at a time; each render already fans out across cores per pixel pass.
+    public static synchronized ExecutorService render() {
+        if (renderExecutor == null) {
+            renderExecutor = Executors.newSingleThreadExecutor(daemonThreads("photobooth-render"));
+        }
+        return renderExecutor;
+    }
+
+    // Decoding is bounded so a large import cannot hold hundreds of full-size images in flight.
+    public static synchronized ExecutorService imports() {
+        if (importExecutor == null) {
+            int threads = Integer.getInteger("photobooth.import.threads",
+                    Math.min(IMPORT_MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+            importExecutor = Executors.newFixedThreadPool(Math.max(1, threads),
+                    daemonThreads("photobooth-import"));
+        }
+        return importExecutor;
+    }
+
+    // Queued work runs in priority order, so tasks must be handed over with execute(), not submit().
+    public static synchronized ExecutorService thumbnails() {
+        if (thumbnailExecutor == null) {
+            int threads = Math.min(THUMBNAIL_MAX_THREADS, Runtime.getRuntime().availableProcessors());
+            thumbnailExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(), daemonThreads("photobooth-thumbnail"));
+        }
+        return thumbnailExecutor;
+    }
+
+    // Theme previews are small independent renders, one task per theme. They leave a core free and
+    // run below normal priority, so a preview burst never starves the FX thread or an apply.
+    public static synchronized ExecutorService previews() {
+        if (previewExecutor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            previewExecutor = Executors.newFixedThreadPool(threads,
+                    daemonThreads("photobooth-preview", Thread.NORM_PRIORITY - 1));
+        }
+        return previewExecutor;
+    }
+
+    // Whole photos render side by side here; BatchRenderer also caps how many outputs await delivery.
+    public static synchronized ExecutorService batchRender() {
+        if (batchRenderExecutor == null) {
+            int threads = Integer.getInteger("photobooth.batch.threads",
+                    Math.min(BATCH_RENDER_MAX_IN_FLIGHT, Runtime.getRuntime().availableProcessors()));
+            batchRenderExecutor = Executors.newFixedThreadPool(Math.max(1, threads),
+                    daemonThreads("photobooth-batch"));
+        }
+        return batchRenderExecutor;
+    }
+
+    public static synchronized void shutdown() {
+        if (renderExecutor != null) {
+            renderExecutor.shutdownNow();
+            renderExecutor = null;
+        }
+        if (importExecutor != null) {
+            importExecutor.shutdownNow();
+            importExecutor = null;
+        }
+        if (thumbnailExecutor != null) {
+            thumbnailExecutor.shutdownNow();
+            thumbnailExecutor = null;
+        }
+        if (previewExecutor != null) {
+            previewExecutor.shutdownNow();
+            previewExecutor = null;
+        }
+        if (batchRenderExecutor != null) {
+            batchRenderExecutor.shutdownNow();
+            batchRenderExecutor = null;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        return daemonThreads(prefix, Thread.NORM_PRIORITY);
+    }
+
+    static ThreadFactory daemonThreads(String prefix, int priority) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.model.Theme;
+import com.photobooth.model.ThemeSnapshot;
+import com.photobooth.util.ImageUtils;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.photobooth.util.Constants.*;
+
+// Renders the small theme-card previews for one photo. The photo is decoded once at proxy size,
+// then every theme renders from that proxy as its own task, so the cards fill in parallel.
+// Results go to RenderCache's preview partition, keyed by theme snapshot, so an edited theme is
+// re-rendered, identical themes share one preview, and full-size renders never evict them.
+// Failures are reported to the listener so the panel can mark the card instead of leaving it
+// blank.
+public class ThemePreviewService {
+
+    private final ExecutorService executor;
+    private final Executor deliveryExecutor;
+    private PreviewBatch currentBatch;
+
+    public interface PreviewListener {
+        void onPreviewRendered(Theme theme, Image preview);
+        default void onPreviewFailed(Theme theme, String reason) { }
+        default void onProxyFailed(Photo photo, String reason) { }
+    }
+
+    public ThemePreviewService() {
+        this(TaskExecutors.previews(), Platform::runLater);
+    }
+
+    public ThemePreviewService(ExecutorService executor, Executor deliveryExecutor) {
+        this.executor = executor;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    // Cached previews are delivered before this returns; the rest arrive on the delivery executor.
+    // Themes are snapshotted here, on the caller's thread. Starting a new batch cancels the
+    // previous one.
+    public PreviewBatch renderPreviews(Photo photo, List<Theme> themes, PreviewListener listener) {
+        cancel();
+
+        PreviewBatch batch = new PreviewBatch(photo, listener);
+        Map<Theme, ThemeSnapshot> missing = new LinkedHashMap<>();
+        for (Theme theme : themes) {
+            ThemeSnapshot snapshot = theme.snapshot();
+            Image cached = lookup(photo, snapshot);
+            if (cached != null) {
+                listener.onPreviewRendered(theme, cached);
+            } else {
+                missing.put(theme, snapshot);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            executor.execute(() -> batch.start(missing));
+        }
+        currentBatch = batch;
+        return batch;
+    }
+
+    public void cancel() {
+        if (currentBatch != null) {
+            currentBatch.cancel();
+            currentBatch = null;
+        }
+    }
+
+    private Image lookup(Photo photo, ThemeSnapshot snapshot) {
+        return RenderCache.get(List.of(photo), snapshot, THEME_PREVIEW_WIDTH, THEME_PREVIEW_HEIGHT);
+    }
+
+    private void store(Photo photo, ThemeSnapshot snapshot, Image preview) {
+        RenderCache.put(List.of(photo), snapshot, THEME_PREVIEW_WIDTH, THEME_PREVIEW_HEIGHT, preview);
+    }
+
+    public class PreviewBatch {
+        private final Photo photo;
+        private final PreviewListener listener;
+        private final AtomicBoolean cancelled;
+
+        private PreviewBatch(Photo photo, PreviewListener listener) {
+            this.photo = photo;
+            this.listener = listener;
+            this.cancelled = new AtomicBoolean(false);
+        }
+
+        // Runs on a worker: decodes the proxy, then fans out one task per theme.
+        private void start(Map<Theme, ThemeSnapshot> themes) {
+            if (isCancelled()) {
+                return;
+            }
+
+            BufferedImage proxy = loadProxy();
+            if (proxy == null) {
+                System.err.println("No preview proxy for " + photo.getFileName());
+                deliver(() -> listener.onProxyFailed(photo, "Could not read " + photo.getFileName()));
+                return;
+            }
+
+            int originalWidth = (int) photo.getWidth();
+            for (Map.Entry<Theme, ThemeSnapshot> entry : themes.entrySet()) {
+                executor.execute(() -> render(proxy, originalWidth, entry.getKey(), entry.getValue()));
+            }
+        }
+
+        private void render(BufferedImage proxy, int originalWidth, Theme theme, ThemeSnapshot snapshot) {
+            if (isCancelled()) {
+                return;
+            }
+
+            Image preview;
+            try {
+                preview = ImageProcessor.renderPreview(proxy, originalWidth, snapshot,
+                        THEME_PREVIEW_WIDTH, THEME_PREVIEW_HEIGHT);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to preview '" + theme.getName() + "': " + e.getMessage());
+                deliver(() -> listener.onPreviewFailed(theme, e.getMessage()));
+                return;
+            }
+
+            store(photo, snapshot, preview);
+            deliver(() -> listener.onPreviewRendered(theme, preview));
+        }
+
+        // Nothing from a cancelled batch reaches the listener, even if it was already queued.
+        private void deliver(Runnable notification) {
+            if (!isCancelled()) {
+                deliveryExecutor.execute(() -> {
+                    if (!isCancelled()) {
+                        notification.run();
+                    }
+                });
+            }
+        }
+
+        // Subsampled decode from the source file; only in-memory photos fall back to the original.
+        // Null when neither can be read.
+        private BufferedImage loadProxy() {
+            try {
+                Image scaled = ImageUtils.loadScaledImage(photo.getSourceFile(),
+                        THEME_PREVIEW_PROXY_SIZE, THEME_PREVIEW_PROXY_SIZE);
+                if (scaled == null) {
+                    Image original = photo.getOriginalImage();
+                    if (original == null) {
+                        return null;
+                    }
+                    scaled = ImageUtils.resizeImage(original,
+                            THEME_PREVIEW_PROXY_SIZE, THEME_PREVIEW_PROXY_SIZE);
+                }
+                return ImageUtils.toRaster(scaled);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.photobooth.util.Constants.*;
+
+// Produces gallery thumbnails off the FX thread. Callers get a placeholder straight away and
+// the real thumbnail later through their callback. Work runs in priority order: tiles on
+// screen first, newest request first, then prefetch. A cancelled request is dropped before it
+// starts, so tiles that scroll away stop costing anything.
+public class ThumbnailService {
+
+    public enum Priority { VISIBLE, PREFETCH }
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final ExecutorService executor;
+    private final Executor deliveryExecutor;
+    private final Image placeholder;
+
+    public ThumbnailService() {
+        this(TaskExecutors.thumbnails(), Platform::runLater);
+    }
+
+    public ThumbnailService(ExecutorService executor, Executor deliveryExecutor) {
+        this.executor = executor;
+        this.deliveryExecutor = deliveryExecutor;
+        this.placeholder = createPlaceholder();
+    }
+
+    public Image getPlaceholder() {
+        return placeholder;
+    }
+
+    // Returns null when the thumbnail was already in memory and the callback has run.
+    public ThumbnailRequest request(Photo photo, Priority priority, Consumer<Image> callback) {
+        Image ready = photo.peekThumbnail();
+        if (ready != null) {
+            if (callback != null) {
+                callback.accept(ready);
+            }
+            return null;
+        }
+
+        ThumbnailRequest request = new ThumbnailRequest(photo, priority, callback);
+        executor.execute(request);
+        return request;
+    }
+
+    private static Image createPlaceholder() {
+        int width = THUMBNAIL_SIZE;
+        int height = THUMBNAIL_SIZE * 3 / 4;
+        WritableImage image = new WritableImage(width, height);
+        Color fill = Color.web(COLOR_PANEL);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getPixelWriter().setColor(x, y, fill);
+            }
+        }
+        return image;
+    }
+
+    // Ordered by priority, then newest first, by the executor's priority queue.
+    public class ThumbnailRequest implements Runnable, Comparable<ThumbnailRequest> {
+        private final Photo photo;
+        private final Priority priority;
+        private final Consumer<Image> callback;
+        private final long sequence;
+        private final AtomicBoolean cancelled;
+
+        private ThumbnailRequest(Photo photo, Priority priority, Consumer<Image> callback) {
+            this.photo = photo;
+            this.priority = priority;
+            this.callback = callback;
+            this.sequence = SEQUENCE.incrementAndGet();
+            this.cancelled = new AtomicBoolean(false);
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                return;
+            }
+
+            Image thumbnail;
+            try {
+                thumbnail = photo.getThumbnail();
+            } catch (RuntimeException e) {
+                System.err.println("Failed to create thumbnail for " + photo.getFileName() + ": " + e.getMessage());
+                return;
+            }
+
+            if (thumbnail != null && callback != null && !isCancelled()) {
+                deliveryExecutor.execute(() -> {
+                    if (!isCancelled()) {
+                        callback.accept(thumbnail);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public int compareTo(ThumbnailRequest other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(other.sequence, sequence);
+        }
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public Photo getPhoto() {
+            return photo;
+        }
+    }
+}
@@ -2,29 +2,72 @@ package com.photobooth.ui;
 
 import com.photobooth.model.Photo;
 import com.photobooth.service.PhotoManager;
-import com.photobooth.util.ImageUtils;
+import com.photobooth.service.ThumbnailService;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.control.IndexedCell;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
-import javafx.scene.image.Image;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
-import javafx.scene.paint.Color;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import static com.photobooth.util.Constants.*;
 
+// The grid is a ListView of rows, so only the rows in or near the viewport have cells and the
+// cells are recycled while scrolling. Tiles are bound to a photo when their row is shown and
+// unbound when the cell is reused, so node count stays constant however many photos there are.
+// PhotoManager change events are applied as row diffs; refresh() is only a full resync.
+// Thumbnails come from ThumbnailService: tiles show a placeholder until theirs is ready.
 public class PhotoGalleryView extends BorderPane {
 
+    private static final double TILE_WIDTH = THUMBNAIL_SIZE + 24;
+    private static final double TILE_HEIGHT = THUMBNAIL_SIZE + 84;
+
+    private static final String TILE_STYLE =
+            "-fx-background-color: white; " +
+                    "-fx-border-color: " + COLOR_BORDER + "; " +
+                    "-fx-border-width: 2px; " +
+                    "-fx-cursor: hand;";
+    private static final String TILE_HOVER_STYLE =
+            "-fx-background-color: #f5f5f5; " +
+                    "-fx-border-color: " + COLOR_PRIMARY + "; " +
+                    "-fx-border-width: 2px; " +
+                    "-fx-cursor: hand;";
+    private static final String TILE_SELECTED_STYLE =
+            "-fx-background-color: #e3f2fd; " +
+                    "-fx-border-color: " + COLOR_PRIMARY + "; " +
+                    "-fx-border-width: 3px; " +
+                    "-fx-cursor: hand;";
+    private static final String SIZE_LABEL_STYLE = "-fx-font-size: 10px; -fx-text-fill: #999;";
+    private static final String SIMILAR_LABEL_STYLE =
+            "-fx-font-size: 10px; -fx-text-fill: #E65100; -fx-font-weight: bold;";
+
     private final PhotoManager photoManager;
-    private final TilePane photoGrid;
-    private final ScrollPane scrollPane;
+    private final ListView<List<Photo>> photoList;
+    private final ObservableList<List<Photo>> rows;
     private final Label emptyLabel;
 
-    private final Map<Photo, VBox> photoBoxMap;
+    private final List<Photo> photos;
+    private final Map<Photo, Integer> photoIndex;
+    private final Set<PhotoTile> tiles;
+    private int columns;
+
+    private final ThumbnailService thumbnailService;
+    private final Map<Photo, ThumbnailService.ThumbnailRequest> prefetches;
+    private int lastFirstRow;
 
     private PhotoSelectionListener selectionListener;
 
@@ -35,142 +78,279 @@ public class PhotoGalleryView extends BorderPane {
 
     public PhotoGalleryView(PhotoManager photoManager) {
         this.photoManager = photoManager;
-        this.photoBoxMap = new HashMap<>();
+        this.photos = new ArrayList<>();
+        this.photoIndex = new HashMap<>();
+        this.tiles = Collections.newSetFromMap(new WeakHashMap<>());
+        this.columns = GALLERY_COLUMNS;
+        this.thumbnailService = new ThumbnailService();
+        this.prefetches = new HashMap<>();
 
         emptyLabel = new Label(MSG_NO_PHOTOS);
         emptyLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #888888;");
 
-        photoGrid = new TilePane();
-        photoGrid.setPadding(new Insets(GALLERY_SPACING));
-        photoGrid.setHgap(GALLERY_SPACING);
-        photoGrid.setVgap(GALLERY_SPACING);
-        photoGrid.setPrefColumns(GALLERY_COLUMNS);
-        photoGrid.setAlignment(Pos.TOP_LEFT);
+        rows = FXCollections.observableArrayList();
+        photoList = new ListView<>(rows);
+        photoList.setCellFactory(list -> new PhotoRowCell());
+        photoList.setFixedCellSize(TILE_HEIGHT + GALLERY_SPACING);
+        photoList.setFocusTraversable(false);
+        photoList.setPlaceholder(emptyLabel);
+        photoList.setStyle("-fx-background-color: " + COLOR_BACKGROUND + "; " +
+                "-fx-background-insets: 0; -fx-padding: " + GALLERY_SPACING + ";");
+        photoList.widthProperty().addListener((obs, oldWidth, newWidth) -> updateColumns(newWidth.doubleValue()));
+        photoList.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            if (photoList.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+                flow.positionProperty().addListener((o, oldPosition, newPosition) -> prefetchAhead(flow));
+            }
+        });
 
-        scrollPane = new ScrollPane(photoGrid);
-        scrollPane.setFitToWidth(true);
-        scrollPane.setStyle("-fx-background: " + COLOR_BACKGROUND + ";");
+        photoManager.addChangeListener(new PhotoManager.PhotoChangeListener() {
+            @Override
+            public void onPhotoAdded(Photo photo, int index) {
+                PhotoGalleryView.this.onPhotoAdded(photo, index);
+            }
 
-        updateDisplay();
+            @Override
+            public void onPhotoRemoved(Photo photo, int index) {
+                PhotoGalleryView.this.onPhotoRemoved(index);
+            }
+
+            @Override
+            public void onPhotoUpdated(Photo photo, int index) {
+                PhotoGalleryView.this.onPhotoUpdated(photo);
+            }
+
+            @Override
+            public void onSelectionChanged(Photo previous, Photo selected) {
+                updateTileStyles();
+            }
+
+            @Override
+            public void onPhotosCleared() {
+                refresh();
+            }
+        });
+
+        refresh();
     }
 
     public void refresh() {
-        photoGrid.getChildren().clear();
-        photoBoxMap.clear();
-
-        if (photoManager.isEmpty()) {
-            updateDisplay();
-            return;
+        for (ThumbnailService.ThumbnailRequest request : prefetches.values()) {
+            request.cancel();
         }
+        prefetches.clear();
 
+        photos.clear();
+        photoIndex.clear();
         for (Photo photo : photoManager.getAllPhotos()) {
-            VBox photoBox = createPhotoBox(photo);
-            photoGrid.getChildren().add(photoBox);
-            photoBoxMap.put(photo, photoBox);
+            photoIndex.put(photo, photos.size());
+            photos.add(photo);
         }
-
+        rebuildRows();
         updateDisplay();
+    }
 
-        if (photoManager.hasSelection()) {
-            highlightSelection(photoManager.getSelectedPhoto());
+    private void updateColumns(double width) {
+        if (width <= 0) {
+            return;
+        }
+        int fitting = (int) ((width - 2 * GALLERY_SPACING) / (TILE_WIDTH + GALLERY_SPACING));
+        int newColumns = Math.max(1, fitting);
+        if (newColumns != columns) {
+            columns = newColumns;
+            rebuildRows();
         }
     }
 
-    private VBox createPhotoBox(Photo photo) {
-        VBox box = new VBox(5);
-        box.setAlignment(Pos.CENTER);
-        box.setPadding(new Insets(10));
-        box.setStyle(
-                "-fx-background-color: white; " +
-                        "-fx-border-color: " + COLOR_BORDER + "; " +
-                        "-fx-border-width: 2px; " +
-                        "-fx-cursor: hand;"
-        );
-
-        Image thumbnail = ImageUtils.createThumbnail(photo.getCurrentImage());
-        ImageView imageView = new ImageView(thumbnail);
-        imageView.setFitWidth(THUMBNAIL_SIZE);
-        imageView.setFitHeight(THUMBNAIL_SIZE);
-        imageView.setPreserveRatio(true);
-
-        Label nameLabel = new Label(photo.getFileName());
-        nameLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
-        nameLabel.setMaxWidth(THUMBNAIL_SIZE);
-        nameLabel.setWrapText(false);
-        nameLabel.setAlignment(Pos.CENTER);
-
-        Label sizeLabel = new Label(photo.getFileSizeFormatted());
-        sizeLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #999;");
-
-        Label themeLabel = new Label();
-        if (photo.hasThemeApplied()) {
-            themeLabel.setText("✓ " + photo.getAppliedTheme().getName());
-            themeLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: " + COLOR_PRIMARY + ";");
+    private void rebuildRows() {
+        List<List<Photo>> chunks = new ArrayList<>((photos.size() + columns - 1) / columns);
+        for (int start = 0; start < photos.size(); start += columns) {
+            chunks.add(List.copyOf(photos.subList(start, Math.min(start + columns, photos.size()))));
         }
+        rows.setAll(chunks);
+    }
 
-        box.getChildren().addAll(imageView, nameLabel, sizeLabel);
-        if (photo.hasThemeApplied()) {
-            box.getChildren().add(themeLabel);
+    // Queues the next screenful of rows in the scroll direction at low priority and drops
+    // prefetches that fell outside that window.
+    private void prefetchAhead(VirtualFlow<?> flow) {
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        IndexedCell<?> last = flow.getLastVisibleCell();
+        if (first == null || last == null) {
+            return;
         }
 
-        box.setOnMouseClicked(event -> handlePhotoClick(photo, box));
+        int firstRow = first.getIndex();
+        int lastRow = last.getIndex();
+        int span = lastRow - firstRow + 1;
+        boolean down = firstRow >= lastFirstRow;
+        lastFirstRow = firstRow;
 
-        box.setOnMouseEntered(event -> {
-            if (!isSelected(photo)) {
-                box.setStyle(
-                        "-fx-background-color: #f5f5f5; " +
-                                "-fx-border-color: " + COLOR_PRIMARY + "; " +
-                                "-fx-border-width: 2px; " +
-                                "-fx-cursor: hand;"
-                );
-            }
-        });
+        int from = down ? lastRow + 1 : Math.max(0, firstRow - span);
+        int to = Math.min(rows.size() - 1, down ? lastRow + span : firstRow - 1);
 
-        box.setOnMouseExited(event -> {
-            if (!isSelected(photo)) {
-                box.setStyle(
-                        "-fx-background-color: white; " +
-                                "-fx-border-color: " + COLOR_BORDER + "; " +
-                                "-fx-border-width: 2px; " +
-                                "-fx-cursor: hand;"
-                );
+        Set<Photo> window = new HashSet<>();
+        for (int row = from; row <= to; row++) {
+            window.addAll(rows.get(row));
+        }
+
+        prefetches.entrySet().removeIf(entry -> {
+            if (window.contains(entry.getKey())) {
+                return false;
             }
+            entry.getValue().cancel();
+            return true;
         });
+        for (Photo photo : window) {
+            if (!prefetches.containsKey(photo)) {
+                ThumbnailService.ThumbnailRequest request =
+                        thumbnailService.request(photo, ThumbnailService.Priority.PREFETCH, null);
+                if (request != null) {
+                    prefetches.put(photo, request);
+                }
+            }
+        }
+    }
 
-        return box;
+    private int rowOf(Photo photo) {
+        Integer index = photoIndex.get(photo);
+        return index != null ? index / columns : -1;
     }
 
-    private void handlePhotoClick(Photo photo, VBox box) {
-        photoManager.selectPhoto(photo);
+    // One row of tiles; the tiles are created once per cell and rebound on every reuse.
+    private class PhotoRowCell extends ListCell<List<Photo>> {
+        private final HBox row;
 
-        clearAllHighlights();
-        highlightSelection(photo);
+        PhotoRowCell() {
+            row = new HBox(GALLERY_SPACING);
+            row.setAlignment(Pos.TOP_LEFT);
+            setStyle("-fx-background-color: transparent; -fx-padding: 0;");
+            setText(null);
+        }
 
-        if (selectionListener != null) {
-            selectionListener.onPhotoSelected(photo);
+        // Rows are replaced with equal copies to force a rebind after a photo changes.
+        @Override
+        protected boolean isItemChanged(List<Photo> oldItem, List<Photo> newItem) {
+            return oldItem != newItem;
+        }
+
+        @Override
+        protected void updateItem(List<Photo> item, boolean empty) {
+            super.updateItem(item, empty);
+
+            int needed = empty || item == null ? 0 : item.size();
+            while (row.getChildren().size() < needed) {
+                PhotoTile tile = new PhotoTile();
+                tiles.add(tile);
+                row.getChildren().add(tile);
+            }
+
+            for (int i = 0; i < row.getChildren().size(); i++) {
+                PhotoTile tile = (PhotoTile) row.getChildren().get(i);
+                if (i < needed) {
+                    tile.bind(item.get(i));
+                } else {
+                    tile.unbind();
+                }
+            }
+
+            setGraphic(needed > 0 ? row : null);
         }
     }
 
-    private void highlightSelection(Photo photo) {
-        VBox box = photoBoxMap.get(photo);
-        if (box != null) {
-            box.setStyle(
-                    "-fx-background-color: #e3f2fd; " +
-                            "-fx-border-color: " + COLOR_PRIMARY + "; " +
-                            "-fx-border-width: 3px; " +
-                            "-fx-cursor: hand;"
-            );
+    private class PhotoTile extends VBox {
+        private final ImageView imageView;
+        private final Label nameLabel;
+        private final Label sizeLabel;
+        private final Label themeLabel;
+        private Photo photo;
+        private ThumbnailService.ThumbnailRequest thumbnailRequest;
+
+        PhotoTile() {
+            super(5);
+            setAlignment(Pos.CENTER);
+            setPadding(new Insets(10));
+            setPrefSize(TILE_WIDTH, TILE_HEIGHT);
+            setMaxSize(TILE_WIDTH, TILE_HEIGHT);
+            setStyle(TILE_STYLE);
+
+            imageView = new ImageView();
+            imageView.setFitWidth(THUMBNAIL_SIZE);
+            imageView.setFitHeight(THUMBNAIL_SIZE);
+            imageView.setPreserveRatio(true);
+
+            nameLabel = new Label();
+            nameLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
+            nameLabel.setMaxWidth(THUMBNAIL_SIZE);
+            nameLabel.setWrapText(false);
+            nameLabel.setAlignment(Pos.CENTER);
+
+            sizeLabel = new Label();
+            sizeLabel.setStyle(SIZE_LABEL_STYLE);
+            sizeLabel.setMaxWidth(THUMBNAIL_SIZE);
+
+            themeLabel = new Label();
+            themeLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: " + COLOR_PRIMARY + ";");
+
+            getChildren().addAll(imageView, nameLabel, sizeLabel, themeLabel);
+
+            setOnMouseClicked(event -> {
+                if (photo != null) {
+                    handlePhotoClick(photo);
+                }
+            });
+            setOnMouseEntered(event -> {
+                if (photo != null && !isSelected(photo)) {
+                    setStyle(TILE_HOVER_STYLE);
+                }
+            });
+            setOnMouseExited(event -> updateStyle());
+        }
+
+        void bind(Photo photo) {
+            cancelThumbnail();
+            this.photo = photo;
+            imageView.setImage(thumbnailService.getPlaceholder());
+            thumbnailRequest = thumbnailService.request(photo, ThumbnailService.Priority.VISIBLE, thumbnail -> {
+                if (this.photo == photo) {
+                    imageView.setImage(thumbnail);
+                }
+            });
+            nameLabel.setText(photo.getFileName());
+            if (photo.getSimilarPhoto() != null) {
+                sizeLabel.setText("⚠ Looks like " + photo.getSimilarPhoto().getFileName());
+                sizeLabel.setStyle(SIMILAR_LABEL_STYLE);
+            } else {
+                sizeLabel.setText(photo.getFileSizeFormatted());
+                sizeLabel.setStyle(SIZE_LABEL_STYLE);
+            }
+            themeLabel.setText(photo.hasThemeApplied() ? "✓ " + photo.getAppliedTheme().getName() : "");
+            setVisible(true);
+            updateStyle();
+        }
+
+        void unbind() {
+            cancelThumbnail();
+            photo = null;
+            imageView.setImage(null);
+            setVisible(false);
+        }
+
+        void updateStyle() {
+            setStyle(photo != null && isSelected(photo) ? TILE_SELECTED_STYLE : TILE_STYLE);
+        }
+
+        private void cancelThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
+            }
         }
     }
 
-    private void clearAllHighlights() {
-        for (VBox box : photoBoxMap.values()) {
-            box.setStyle(
-                    "-fx-background-color: white; " +
-                            "-fx-border-color: " + COLOR_BORDER + "; " +
-                            "-fx-border-width: 2px; " +
-                            "-fx-cursor: hand;"
-            );
+    private void handlePhotoClick(Photo photo) {
+        photoManager.selectPhoto(photo);
+
+        if (selectionListener != null) {
+            selectionListener.onPhotoSelected(photo);
         }
     }
 
@@ -180,10 +360,10 @@ public class PhotoGalleryView extends BorderPane {
     }
 
     private void updateDisplay() {
-        if (photoManager.isEmpty()) {
+        if (photos.isEmpty()) {
             setCenter(createEmptyState());
-        } else {
-            setCenter(scrollPane);
+        } else if (getCenter() != photoList) {
+            setCenter(photoList);
         }
     }
 
@@ -206,70 +386,91 @@ public class PhotoGalleryView extends BorderPane {
         return emptyBox;
     }
 
-    public void addPhoto(Photo photo) {
-        if (photo != null) {
-            refresh();
-        }
-    }
-
-    public void removePhoto(Photo photo) {
-        if (photo != null) {
-            photoBoxMap.remove(photo);
-            refresh();
+    // Appends to the last row, or starts a new one; only that row's cell is rebound.
+    private void onPhotoAdded(Photo photo, int index) {
+        photos.add(index, photo);
+        if (index == photos.size() - 1) {
+            photoIndex.put(photo, index);
+            int row = index / columns;
+            List<Photo> rowPhotos = List.copyOf(photos.subList(row * columns, photos.size()));
+            if (row < rows.size()) {
+                rows.set(row, rowPhotos);
+            } else {
+                rows.add(rowPhotos);
+            }
+        } else {
+            reindexFrom(index);
         }
+        updateDisplay();
     }
 
-    public void clear() {
-        photoBoxMap.clear();
-        refresh();
+    private void onPhotoRemoved(int index) {
+        Photo removed = photos.remove(index);
+        photoIndex.remove(removed);
+        reindexFrom(index);
+        updateDisplay();
     }
 
-    public void setSelectionListener(PhotoSelectionListener listener) {
-        this.selectionListener = listener;
-    }
+    // Rows before the change keep their cells; later rows shift by one photo.
+    private void reindexFrom(int index) {
+        for (int i = index; i < photos.size(); i++) {
+            photoIndex.put(photos.get(i), i);
+        }
 
-    public TilePane getPhotoGrid() {
-        return photoGrid;
+        int firstRow = index / columns;
+        List<List<Photo>> tail = new ArrayList<>();
+        for (int start = firstRow * columns; start < photos.size(); start += columns) {
+            tail.add(List.copyOf(photos.subList(start, Math.min(start + columns, photos.size()))));
+        }
+        for (int row = firstRow; row < rows.size() && row - firstRow < tail.size(); row++) {
+            rows.set(row, tail.get(row - firstRow));
+        }
+        if (rows.size() > firstRow + tail.size()) {
+            rows.remove(firstRow + tail.size(), rows.size());
+        } else {
+            rows.addAll(tail.subList(rows.size() - firstRow, tail.size()));
+        }
     }
 
-    public void updatePhoto(Photo photo) {
-        if (photo == null || !photoBoxMap.containsKey(photo)) {
+    private void onPhotoUpdated(Photo photo) {
+        int row = rowOf(photo);
+        if (row < 0 || row >= rows.size()) {
             return;
         }
+        rows.set(row, List.copyOf(rows.get(row)));
+    }
 
-        VBox oldBox = photoBoxMap.get(photo);
-        photoGrid.getChildren().remove(oldBox);
-
-        VBox newBox = createPhotoBox(photo);
-        int index = photoManager.getAllPhotos().indexOf(photo);
-
-        if (index >= 0 && index < photoGrid.getChildren().size()) {
-            photoGrid.getChildren().add(index, newBox);
-        } else {
-            photoGrid.getChildren().add(newBox);
+    private void updateTileStyles() {
+        for (PhotoTile tile : tiles) {
+            tile.updateStyle();
         }
+    }
 
-        photoBoxMap.put(photo, newBox);
+    public void setSelectionListener(PhotoSelectionListener listener) {
+        this.selectionListener = listener;
+    }
 
-        if (isSelected(photo)) {
-            highlightSelection(photo);
-        }
+    public ListView<List<Photo>> getPhotoList() {
+        return photoList;
     }
 
     public VBox getSelectedPhotoBox() {
         if (!photoManager.hasSelection()) {
             return null;
         }
-        return photoBoxMap.get(photoManager.getSelectedPhoto());
+        Photo selected = photoManager.getSelectedPhoto();
+        for (PhotoTile tile : tiles) {
+            if (selected.equals(tile.photo)) {
+                return tile;
+            }
+        }
+        return null;
     }
 
     public void scrollToPhoto(Photo photo) {
-        VBox box = photoBoxMap.get(photo);
-        if (box != null) {
-            // Calculate approximate scroll position
-            double vValue = photoGrid.getChildren().indexOf(box) /
-                    (double) photoGrid.getChildren().size();
-            scrollPane.setVvalue(vValue);
+        int row = rowOf(photo);
+        if (row >= 0) {
+            photoList.scrollTo(row);
         }
     }
 
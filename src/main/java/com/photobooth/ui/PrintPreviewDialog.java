@@ -83,7 +83,7 @@ public class PrintPreviewDialog extends Stage {
         Label previewLabel = new Label("Preview");
         previewLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
 
-        Image previewImage = photo.getCurrentImage();
+        Image previewImage = photo.getPreviewImage();
         previewImageView = new ImageView(previewImage);
         previewImageView.setPreserveRatio(true);
         previewImageView.setFitWidth(PREVIEW_MAX_WIDTH);
@@ -2,8 +2,14 @@ package com.photobooth.ui;
 
 import com.photobooth.model.Photo;
 import com.photobooth.model.Theme;
+import com.photobooth.model.ThemeSnapshot;
 import com.photobooth.service.ImageProcessor;
 import com.photobooth.service.PhotoManager;
+import com.photobooth.service.BatchRenderer;
+import com.photobooth.service.RenderCache;
+import com.photobooth.service.TaskExecutors;
+import com.photobooth.service.ThemePreviewService;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -16,6 +22,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static com.photobooth.util.Constants.*;
 
@@ -27,9 +34,17 @@ public class ThemeSelectorPanel extends VBox {
 
     private final VBox themesContainer;
     private final Map<Theme, VBox> themeBoxMap;
+    private final Map<Theme, ImageView> previewViews;
+    private final Map<Theme, Label> previewNotes;
+    private final ThemePreviewService previewService;
+    private final BatchRenderer batchRenderer;
     private final Button applyButton;
+    private final Button applyAllButton;
     private final Label statusLabel;
+    private final ProgressIndicator progressIndicator;
 
+    private Task<Image> renderTask;
+    private BatchRenderer.BatchJob batchJob;
     private ThemeAppliedListener themeAppliedListener;
 
     @FunctionalInterface
@@ -41,6 +56,10 @@ public class ThemeSelectorPanel extends VBox {
         this.photoManager = photoManager;
         this.availableThemes = new ArrayList<>();
         this.themeBoxMap = new HashMap<>();
+        this.previewViews = new HashMap<>();
+        this.previewNotes = new HashMap<>();
+        this.previewService = new ThemePreviewService();
+        this.batchRenderer = new BatchRenderer(photoManager);
 
         this.setPrefWidth(THEME_PANEL_WIDTH);
         this.setPadding(new Insets(PANEL_PADDING));
@@ -70,22 +89,59 @@ public class ThemeSelectorPanel extends VBox {
         applyButton.setDisable(true);
         applyButton.setOnAction(e -> applySelectedTheme());
 
+        applyAllButton = new Button("Apply to All Photos");
+        applyAllButton.setMaxWidth(Double.MAX_VALUE);
+        applyAllButton.setDisable(true);
+        applyAllButton.setOnAction(e -> applySelectedThemeToAll());
+
         statusLabel = new Label(MSG_SELECT_PHOTO);
         statusLabel.setWrapText(true);
         statusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
         statusLabel.setMaxWidth(Double.MAX_VALUE);
         statusLabel.setAlignment(Pos.CENTER);
 
+        progressIndicator = new ProgressIndicator();
+        progressIndicator.setPrefSize(32, 32);
+        progressIndicator.setVisible(false);
+        progressIndicator.setManaged(false);
+        HBox progressBox = new HBox(progressIndicator);
+        progressBox.setAlignment(Pos.CENTER);
+
         this.getChildren().addAll(
                 titleLabel,
                 new Separator(),
                 scrollPane,
                 new Separator(),
                 applyButton,
+                applyAllButton,
+                progressBox,
                 statusLabel
         );
 
         loadDefaultThemes();
+
+        photoManager.addChangeListener(new PhotoManager.PhotoChangeListener() {
+            @Override
+            public void onSelectionChanged(Photo previous, Photo selected) {
+                showPreviews(selected);
+            }
+
+            @Override
+            public void onPhotoAdded(Photo photo, int index) {
+                updateApplyButtonState();
+            }
+
+            @Override
+            public void onPhotoRemoved(Photo photo, int index) {
+                updateApplyButtonState();
+            }
+
+            @Override
+            public void onPhotosCleared() {
+                cancelRender();
+                updateApplyButtonState();
+            }
+        });
     }
 
 
@@ -99,6 +155,7 @@ public class ThemeSelectorPanel extends VBox {
         availableThemes.add(Theme.createPhotoStrip());
         availableThemes.add(Theme.createCollage());
         availableThemes.add(Theme.createVibrant());
+        availableThemes.add(Theme.createGoldenHour());
 
         refreshThemesList();
     }
@@ -107,12 +164,70 @@ public class ThemeSelectorPanel extends VBox {
     public void refreshThemesList() {
         themesContainer.getChildren().clear();
         themeBoxMap.clear();
+        previewViews.clear();
+        previewNotes.clear();
 
         for (Theme theme : availableThemes) {
             VBox themeBox = createThemeBox(theme);
             themesContainer.getChildren().add(themeBox);
             themeBoxMap.put(theme, themeBox);
         }
+
+        showPreviews(photoManager.getSelectedPhoto());
+    }
+
+    // Previews come from ThemePreviewService; a card whose preview failed says so instead of
+    // staying blank, and a photo that cannot be read at all is also reported in the status line.
+    private void showPreviews(Photo photo) {
+        for (ImageView view : previewViews.values()) {
+            setPreview(view, null);
+        }
+        for (Label note : previewNotes.values()) {
+            setPreviewNote(note, null);
+        }
+        if (photo == null) {
+            previewService.cancel();
+            return;
+        }
+
+        previewService.renderPreviews(photo, new ArrayList<>(availableThemes),
+                new ThemePreviewService.PreviewListener() {
+            @Override
+            public void onPreviewRendered(Theme theme, Image preview) {
+                ImageView view = previewViews.get(theme);
+                if (view != null) {
+                    setPreview(view, preview);
+                }
+            }
+
+            @Override
+            public void onPreviewFailed(Theme theme, String reason) {
+                Label note = previewNotes.get(theme);
+                if (note != null) {
+                    setPreviewNote(note, "Preview unavailable");
+                }
+            }
+
+            @Override
+            public void onProxyFailed(Photo failed, String reason) {
+                for (Label note : previewNotes.values()) {
+                    setPreviewNote(note, "Preview unavailable");
+                }
+                statusLabel.setText("No previews: " + reason);
+            }
+        });
+    }
+
+    private void setPreview(ImageView view, Image preview) {
+        view.setImage(preview);
+        view.setVisible(preview != null);
+        view.setManaged(preview != null);
+    }
+
+    private void setPreviewNote(Label note, String text) {
+        note.setText(text);
+        note.setVisible(text != null);
+        note.setManaged(text != null);
     }
 
 
@@ -141,7 +256,10 @@ public class ThemeSelectorPanel extends VBox {
         }
 
         if (theme.hasFilter()) {
-            Label filterLabel = new Label("Filter: " + theme.getFilterType().getDisplayName());
+            String filters = theme.getFilterLayers().stream()
+                    .map(layer -> layer.getFilterType().getDisplayName())
+                    .collect(Collectors.joining(" + "));
+            Label filterLabel = new Label("Filter: " + filters);
             filterLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
             detailsBox.getChildren().add(filterLabel);
         }
@@ -174,7 +292,19 @@ public class ThemeSelectorPanel extends VBox {
             detailsBox.getChildren().add(slotsLabel);
         }
 
-        box.getChildren().addAll(nameLabel, detailsBox);
+        ImageView previewView = new ImageView();
+        previewView.setFitWidth(THEME_PREVIEW_WIDTH);
+        previewView.setFitHeight(THEME_PREVIEW_HEIGHT);
+        previewView.setPreserveRatio(true);
+        setPreview(previewView, null);
+        previewViews.put(theme, previewView);
+
+        Label previewNote = new Label();
+        previewNote.setStyle("-fx-font-size: 11px; -fx-text-fill: #E65100;");
+        setPreviewNote(previewNote, null);
+        previewNotes.put(theme, previewNote);
+
+        box.getChildren().addAll(previewView, previewNote, nameLabel, detailsBox);
 
         box.setOnMouseClicked(event -> handleThemeClick(theme, box));
 
@@ -225,6 +355,9 @@ public class ThemeSelectorPanel extends VBox {
 
 
     private void handleThemeClick(Theme theme, VBox box) {
+        if (!theme.equals(selectedTheme)) {
+            cancelRender();
+        }
         selectedTheme = theme;
 
         clearAllHighlights();
@@ -265,6 +398,10 @@ public class ThemeSelectorPanel extends VBox {
 
 
     public void updateApplyButtonState() {
+        if (isRendering()) {
+            return;
+        }
+
         boolean canApply = false;
         String message = MSG_SELECT_PHOTO;
 
@@ -286,6 +423,8 @@ public class ThemeSelectorPanel extends VBox {
         }
 
         applyButton.setDisable(!canApply);
+        applyAllButton.setDisable(selectedTheme == null || selectedTheme.isMultiPhoto()
+                || photoManager.getPhotoCount() == 0);
         statusLabel.setText(message);
     }
 
@@ -302,63 +441,172 @@ public class ThemeSelectorPanel extends VBox {
             return;
         }
 
-        try {
-            if (selectedTheme.isMultiPhoto()) {
-                List<Photo> photos = photoManager.getPhotosForTheme(selectedTheme);
-                Image processedImage = ImageProcessor.applyThemeWithLayout(photos, selectedTheme);
+        Theme theme = selectedTheme;
+        ThemeSnapshot snapshot = theme.snapshot();
+        List<Photo> photos = theme.isMultiPhoto()
+                ? photoManager.getPhotosForTheme(theme)
+                : List.of(photoManager.getSelectedPhoto());
+        Photo targetPhoto = photos.get(0);
 
-                if (processedImage != null) {
-                    Photo targetPhoto = photos.get(0);
-                    targetPhoto.setProcessedImage(processedImage);
-                    targetPhoto.setAppliedTheme(selectedTheme);
+        cancelRender();
 
-                    showSuccess("Theme Applied!",
-                            "'" + selectedTheme.getName() + "' applied successfully!");
+        // A look rendered before for these photos is applied straight away, with no task at all.
+        Image cached = RenderCache.get(photos, snapshot, RenderCache.NATIVE_SIZE, RenderCache.NATIVE_SIZE);
+        if (cached != null) {
+            showAppliedTheme(theme, targetPhoto, cached);
+            return;
+        }
 
-                    if (themeAppliedListener != null) {
-                        themeAppliedListener.onThemeApplied(selectedTheme, targetPhoto);
-                    }
+        Task<Image> task = new Task<>() {
+            @Override
+            protected Image call() {
+                Image rendered = ImageProcessor.applyThemeWithLayout(photos, snapshot, this::updateProgress);
+                if (rendered != null) {
+                    RenderCache.put(photos, snapshot, RenderCache.NATIVE_SIZE, RenderCache.NATIVE_SIZE, rendered);
                 }
-            } else {
-                Photo photo = photoManager.getSelectedPhoto();
-                Image processedImage = ImageProcessor.applyTheme(photo, selectedTheme);
+                return rendered;
+            }
+        };
 
-                if (processedImage != null) {
-                    photo.setProcessedImage(processedImage);
-                    photo.setAppliedTheme(selectedTheme);
+        task.setOnSucceeded(event -> {
+            Image processedImage = task.getValue();
+            if (!finishRender(task) || processedImage == null) {
+                return;
+            }
+            showAppliedTheme(theme, targetPhoto, processedImage);
+        });
 
-                    showSuccess("Theme Applied!",
-                            "'" + selectedTheme.getName() + "' applied to " +
-                                    photo.getFileName());
+        task.setOnFailed(event -> {
+            if (!finishRender(task)) {
+                return;
+            }
+            Throwable error = task.getException();
+            showAlert("Error", "Failed to apply theme: " + error.getMessage());
+            error.printStackTrace();
+        });
+
+        task.setOnCancelled(event -> finishRender(task));
+
+        renderTask = task;
+        progressIndicator.progressProperty().bind(task.progressProperty());
+        progressIndicator.setVisible(true);
+        progressIndicator.setManaged(true);
+        statusLabel.setText("Applying '" + theme.getName() + "'...");
+
+        TaskExecutors.render().submit(task);
+    }
+
+    private void showAppliedTheme(Theme theme, Photo targetPhoto, Image processedImage) {
+        targetPhoto.setProcessedImage(processedImage);
+        targetPhoto.setAppliedTheme(theme);
+        photoManager.notifyPhotoUpdated(targetPhoto);
+        statusLabel.setText(theme.isMultiPhoto()
+                ? "'" + theme.getName() + "' applied successfully!"
+                : "'" + theme.getName() + "' applied to " + targetPhoto.getFileName());
+
+        if (themeAppliedListener != null) {
+            themeAppliedListener.onThemeApplied(theme, targetPhoto);
+        }
+    }
+
+    // Renders the theme onto every photo at once; each photo updates as soon as its render lands.
+    private void applySelectedThemeToAll() {
+        if (selectedTheme == null || selectedTheme.isMultiPhoto() || photoManager.getPhotoCount() == 0) {
+            return;
+        }
+
+        cancelRender();
 
-                    if (themeAppliedListener != null) {
-                        themeAppliedListener.onThemeApplied(selectedTheme, photo);
+        // A cancelled job delivers nothing further, so every callback here belongs to the current batch.
+        Theme theme = selectedTheme;
+        BatchRenderer.BatchJob job = batchRenderer.renderAll(photoManager.getAllPhotos(), theme,
+                new BatchRenderer.BatchRenderListener() {
+                    @Override
+                    public void onPhotoRendered(Photo photo, int completed, int total) {
+                        showBatchProgress(completed, total);
                     }
-                }
-            }
-        } catch (Exception e) {
-            showAlert("Error", "Failed to apply theme: " + e.getMessage());
-            e.printStackTrace();
+
+                    @Override
+                    public void onRenderFailed(Photo photo, String reason, int completed, int total) {
+                        showBatchProgress(completed, total);
+                    }
+
+                    @Override
+                    public void onBatchFinished(int rendered, int failed, boolean cancelled, long elapsedMillis) {
+                        if (cancelled) {
+                            return;
+                        }
+                        batchJob = null;
+                        hideProgress();
+                        updateApplyButtonState();
+                        statusLabel.setText(String.format("'%s' applied to %d photos in %.1f s%s",
+                                theme.getName(), rendered, elapsedMillis / 1000.0,
+                                failed > 0 ? " (" + failed + " failed)" : ""));
+                    }
+                });
+
+        batchJob = job;
+        applyButton.setDisable(true);
+        applyAllButton.setDisable(true);
+        progressIndicator.setProgress(0);
+        progressIndicator.setVisible(true);
+        progressIndicator.setManaged(true);
+        statusLabel.setText("Applying '" + theme.getName() + "' to " + job.getTotal() + " photos...");
+    }
+
+    private void showBatchProgress(int completed, int total) {
+        progressIndicator.setProgress((double) completed / total);
+        statusLabel.setText(String.format("Rendered %d of %d (%.1f photos/s)",
+                completed, total, batchJob.getPhotosPerSecond()));
+    }
+
+    // Interrupts the in-flight render; its result is dropped because cancelled tasks never succeed.
+    public void cancelRender() {
+        if (batchJob != null) {
+            BatchRenderer.BatchJob job = batchJob;
+            batchJob = null;
+            job.cancel();
+            hideProgress();
+            updateApplyButtonState();
+        }
+        if (renderTask != null) {
+            Task<Image> task = renderTask;
+            renderTask = null;
+            task.cancel(true);
+            hideProgress();
+            updateApplyButtonState();
         }
     }
 
-    private void showAlert(String title, String message) {
-        Alert alert = new Alert(Alert.AlertType.WARNING);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
+    public boolean isRendering() {
+        return renderTask != null || batchJob != null;
+    }
+
+    // Returns false for a task that has been superseded, whose outcome must be ignored.
+    private boolean finishRender(Task<Image> task) {
+        if (renderTask != task) {
+            return false;
+        }
+        renderTask = null;
+        hideProgress();
+        updateApplyButtonState();
+        return true;
     }
 
-    private void showSuccess(String title, String message) {
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+    private void hideProgress() {
+        progressIndicator.progressProperty().unbind();
+        progressIndicator.setVisible(false);
+        progressIndicator.setManaged(false);
+    }
+
+    private void showAlert(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setTitle(title);
         alert.setHeaderText(null);
         alert.setContentText(message);
         alert.showAndWait();
     }
 
-
     public void addTheme(Theme theme) {
         if (theme != null && !availableThemes.contains(theme)) {
             availableThemes.add(theme);
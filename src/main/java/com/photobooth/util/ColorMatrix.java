@@ -0,0 +1,229 @@
+package com.photobooth.util;
+
+import com.photobooth.model.Theme.FilterType;
+
+import java.util.Arrays;
+
+/**
+ * A 4x5 affine color transform over 8-bit channels, laid out row-major as
+ * {@code [R G B A offset]} for each output channel R, G, B, A. Offsets are in 0-255 units.
+ * Composed matrices clamp only once, after the final transform.
+ */
+public final class ColorMatrix {
+
+    private static final int FRACTION_BITS = 16;
+    private static final int ONE = 1 << FRACTION_BITS;
+    private static final int HALF = 1 << (FRACTION_BITS - 1);
+    private static final double MAX_COEFFICIENT = 32.0;
+
+    private static final double LUMA_R = 0.299;
+    private static final double LUMA_G = 0.587;
+    private static final double LUMA_B = 0.114;
+
+    private static final ColorMatrix IDENTITY = new ColorMatrix(new double[]{
+            1, 0, 0, 0, 0,
+            0, 1, 0, 0, 0,
+            0, 0, 1, 0, 0,
+            0, 0, 0, 1, 0
+    });
+
+    private final double[] m;
+
+    private ColorMatrix(double[] m) {
+        this.m = m;
+    }
+
+    public static ColorMatrix identity() {
+        return IDENTITY;
+    }
+
+    public static ColorMatrix of(double... values) {
+        if (values.length != 20) {
+            throw new IllegalArgumentException("A color matrix needs 20 values, got " + values.length);
+        }
+        return new ColorMatrix(values.clone());
+    }
+
+    public static ColorMatrix forFilter(FilterType filterType, double intensity) {
+        double k = Math.max(0.0, Math.min(1.0, intensity));
+        return switch (filterType) {
+            case NONE -> IDENTITY;
+            case GRAYSCALE -> mix(rgb(
+                    LUMA_R, LUMA_G, LUMA_B,
+                    LUMA_R, LUMA_G, LUMA_B,
+                    LUMA_R, LUMA_G, LUMA_B), k);
+            case SEPIA -> mix(rgb(
+                    0.393, 0.769, 0.189,
+                    0.349, 0.686, 0.168,
+                    0.272, 0.534, 0.131), k);
+            case VIBRANT -> saturation(1.0 + k);
+            case WARM -> offset(0.1 * k * 255, 0.05 * k * 255, -0.1 * k * 255);
+            case COOL -> offset(-0.1 * k * 255, 0, 0.1 * k * 255);
+            case BRIGHTNESS -> offset(k * 255, k * 255, k * 255);
+            case CONTRAST -> contrast(1.0 + k);
+        };
+    }
+
+    // Luma-preserving saturation; the affine stand-in for VIBRANT inside a fused stack.
+    public static ColorMatrix saturation(double s) {
+        double inv = 1 - s;
+        return rgb(
+                inv * LUMA_R + s, inv * LUMA_G, inv * LUMA_B,
+                inv * LUMA_R, inv * LUMA_G + s, inv * LUMA_B,
+                inv * LUMA_R, inv * LUMA_G, inv * LUMA_B + s);
+    }
+
+    public static ColorMatrix contrast(double contrast) {
+        double factor = (259.0 * (contrast + 255.0)) / (255.0 * (259.0 - contrast));
+        double shift = 127.5 * (1 - factor);
+        return new ColorMatrix(new double[]{
+                factor, 0, 0, 0, shift,
+                0, factor, 0, 0, shift,
+                0, 0, factor, 0, shift,
+                0, 0, 0, 1, 0
+        });
+    }
+
+    public static ColorMatrix offset(double r, double g, double b) {
+        return new ColorMatrix(new double[]{
+                1, 0, 0, 0, r,
+                0, 1, 0, 0, g,
+                0, 0, 1, 0, b,
+                0, 0, 0, 1, 0
+        });
+    }
+
+    private static ColorMatrix rgb(double rr, double rg, double rb,
+                                   double gr, double gg, double gb,
+                                   double br, double bg, double bb) {
+        return new ColorMatrix(new double[]{
+                rr, rg, rb, 0, 0,
+                gr, gg, gb, 0, 0,
+                br, bg, bb, 0, 0,
+                0, 0, 0, 1, 0
+        });
+    }
+
+    // (1 - k) * I + k * target
+    private static ColorMatrix mix(ColorMatrix target, double k) {
+        double[] result = new double[20];
+        for (int i = 0; i < 20; i++) {
+            result[i] = (1 - k) * IDENTITY.m[i] + k * target.m[i];
+        }
+        return new ColorMatrix(result);
+    }
+
+    /** Returns the transform that applies this matrix first and {@code next} second. */
+    public ColorMatrix then(ColorMatrix next) {
+        double[] a = next.m;
+        double[] b = this.m;
+        double[] result = new double[20];
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 5; col++) {
+                double sum = col == 4 ? a[row * 5 + 4] : 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += a[row * 5 + k] * b[k * 5 + col];
+                }
+                result[row * 5 + col] = sum;
+            }
+        }
+        return new ColorMatrix(result);
+    }
+
+    public boolean isIdentity() {
+        return Arrays.equals(m, IDENTITY.m);
+    }
+
+    public double get(int row, int col) {
+        return m[row * 5 + col];
+    }
+
+    public PixelKernel toKernel() {
+        int[] c = new int[20];
+        for (int i = 0; i < 20; i++) {
+            double value = i % 5 == 4 ? m[i] : Math.max(-MAX_COEFFICIENT, Math.min(MAX_COEFFICIENT, m[i]));
+            c[i] = (int) Math.round(value * ONE);
+        }
+        boolean keepAlpha = c[15] == 0 && c[16] == 0 && c[17] == 0 && c[18] == ONE && c[19] == 0;
+        boolean perChannel = c[1] == 0 && c[2] == 0 && c[3] == 0
+                && c[5] == 0 && c[7] == 0 && c[8] == 0
+                && c[10] == 0 && c[11] == 0 && c[13] == 0;
+        if (keepAlpha && perChannel) {
+            return channelTables(c);
+        }
+        return new MatrixKernel(c, keepAlpha);
+    }
+
+    // Scale-and-offset stacks (tones, brightness, contrast) map each channel on its own,
+    // so the whole fused stack collapses into three 256-entry tables.
+    private static PixelKernel channelTables(int[] c) {
+        int[] red = new int[256];
+        int[] green = new int[256];
+        int[] blue = new int[256];
+        for (int v = 0; v < 256; v++) {
+            red[v] = MatrixKernel.channel(c[0] * v + c[4]) << 16;
+            green[v] = MatrixKernel.channel(c[6] * v + c[9]) << 8;
+            blue[v] = MatrixKernel.channel(c[12] * v + c[14]);
+        }
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                argb[i] = (p & 0xFF000000)
+                        | red[(p >> 16) & 0xFF]
+                        | green[(p >> 8) & 0xFF]
+                        | blue[p & 0xFF];
+            }
+        };
+    }
+
+    private static final class MatrixKernel implements PixelKernel {
+        private final int[] c;
+        private final boolean keepAlpha;
+
+        MatrixKernel(int[] c, boolean keepAlpha) {
+            this.c = c;
+            this.keepAlpha = keepAlpha;
+        }
+
+        @Override
+        public void apply(int[] argb, int from, int to) {
+            int[] c = this.c;
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                int a = p >>> 24;
+                int r = (p >> 16) & 0xFF;
+                int g = (p >> 8) & 0xFF;
+                int b = p & 0xFF;
+
+                int outR = channel(c[0] * r + c[1] * g + c[2] * b + c[3] * a + c[4]);
+                int outG = channel(c[5] * r + c[6] * g + c[7] * b + c[8] * a + c[9]);
+                int outB = channel(c[10] * r + c[11] * g + c[12] * b + c[13] * a + c[14]);
+                int outA = keepAlpha ? a : channel(c[15] * r + c[16] * g + c[17] * b + c[18] * a + c[19]);
+
+                argb[i] = (outA << 24) | (outR << 16) | (outG << 8) | outB;
+            }
+        }
+
+        private static int channel(int fixed) {
+            int value = (fixed + HALF) >> FRACTION_BITS;
+            return value < 0 ? 0 : Math.min(255, value);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(m, ((ColorMatrix) o).m);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m);
+    }
+
+    @Override
+    public String toString() {
+        return "ColorMatrix" + Arrays.toString(m);
+    }
+}
@@ -19,6 +19,23 @@ public class Constants {
     public static final int PREVIEW_MAX_HEIGHT = 600;
     public static final int PRINT_DPI = 300;
 
+    public static final int FILTER_PARALLEL_THRESHOLD_PIXELS = 512 * 512;
+    public static final int IMPORT_MAX_THREADS = 4;
+    public static final int THUMBNAIL_MAX_THREADS = 2;
+    public static final long RENDER_GRAPH_BUDGET_MB = 128;
+    public static final long RENDER_CACHE_BUDGET_MB = 256;
+    public static final long PREVIEW_CACHE_BUDGET_MB = 16;
+    public static final int BATCH_RENDER_MAX_IN_FLIGHT = 8;
+    public static final long PHOTO_STORE_BUDGET_MB = 512;
+    public static final long THUMBNAIL_CACHE_BUDGET_MB = 128;
+    public static final float THUMBNAIL_CACHE_JPEG_QUALITY = 0.9f;
+    public static final int SIMILAR_PHOTO_HASH_DISTANCE = 4;
+
+    public static final long HOT_FOLDER_POLL_MS = 250;
+    public static final long HOT_FOLDER_SETTLE_MS = 1000;
+    public static final int HOT_FOLDER_QUEUE_CAPACITY = 64;
+    public static final int HOT_FOLDER_MAX_IN_FLIGHT = 8;
+
     public static final String FILE_CHOOSER_DESCRIPTION = "Image Files";
     public static final String[] SUPPORTED_IMAGE_EXTENSIONS = {"*.jpg", "*.jpeg", "*.png", "*.bmp", "*.gif"};
 
@@ -28,6 +45,9 @@ public class Constants {
     public static final int PANEL_PADDING = 10;
 
     public static final int THEME_PANEL_WIDTH = 250;
+    public static final int THEME_PREVIEW_WIDTH = 200;
+    public static final int THEME_PREVIEW_HEIGHT = 150;
+    public static final int THEME_PREVIEW_PROXY_SIZE = 400;
     public static final int TOOLBAR_HEIGHT = 60;
 
     public static final int DEFAULT_BORDER_WIDTH = 8;
@@ -50,6 +70,9 @@ public class Constants {
 
     public static final String OUTPUT_DIRECTORY = "output";
     public static final String THEME_DIRECTORY = "themes";
+    public static final String APP_DATA_DIRECTORY = ".photobooth";
+    public static final String THUMBNAIL_CACHE_DIRECTORY = "thumbnails";
+    public static final String RENDER_SPILL_DIRECTORY = "photobooth-renders";
 
     public static final String DEFAULT_FONT_FAMILY = "Arial";
     public static final int DEFAULT_HEADER_FONT_SIZE = 24;
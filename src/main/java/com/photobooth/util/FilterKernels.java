@@ -0,0 +1,109 @@
+package com.photobooth.util;
+
+public class FilterKernels {
+
+    private FilterKernels() {
+        throw new AssertionError("Cannot instantiate FilterKernels class");
+    }
+
+    public static PixelKernel grayscale(double intensity) {
+        double keep = 1 - intensity;
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                double r = red(p), g = green(p), b = blue(p);
+
+                double gray = 0.299 * r + 0.587 * g + 0.114 * b;
+
+                argb[i] = pack(p, r * keep + gray * intensity,
+                        g * keep + gray * intensity,
+                        b * keep + gray * intensity);
+            }
+        };
+    }
+
+    public static PixelKernel sepia(double intensity) {
+        double keep = 1 - intensity;
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                double r = red(p), g = green(p), b = blue(p);
+
+                double tr = Math.min(1.0, 0.393 * r + 0.769 * g + 0.189 * b);
+                double tg = Math.min(1.0, 0.349 * r + 0.686 * g + 0.168 * b);
+                double tb = Math.min(1.0, 0.272 * r + 0.534 * g + 0.131 * b);
+
+                argb[i] = pack(p, r * keep + tr * intensity,
+                        g * keep + tg * intensity,
+                        b * keep + tb * intensity);
+            }
+        };
+    }
+
+    public static PixelKernel brightness(double intensity) {
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                argb[i] = pack(p, red(p) + intensity, green(p) + intensity, blue(p) + intensity);
+            }
+        };
+    }
+
+    public static PixelKernel contrast(double intensity) {
+        double contrast = 1.0 + intensity;
+        double factor = (259.0 * (contrast + 255.0)) / (255.0 * (259.0 - contrast));
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                argb[i] = pack(p, factor * (red(p) - 0.5) + 0.5,
+                        factor * (green(p) - 0.5) + 0.5,
+                        factor * (blue(p) - 0.5) + 0.5);
+            }
+        };
+    }
+
+    public static PixelKernel warmTone(double intensity) {
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                argb[i] = pack(p, red(p) + 0.1 * intensity,
+                        green(p) + 0.05 * intensity,
+                        blue(p) - 0.1 * intensity);
+            }
+        };
+    }
+
+    public static PixelKernel coolTone(double intensity) {
+        return (argb, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                argb[i] = pack(p, red(p) - 0.1 * intensity,
+                        green(p),
+                        blue(p) + 0.1 * intensity);
+            }
+        };
+    }
+
+    private static double red(int argb) {
+        return ((argb >> 16) & 0xFF) / 255.0;
+    }
+
+    private static double green(int argb) {
+        return ((argb >> 8) & 0xFF) / 255.0;
+    }
+
+    private static double blue(int argb) {
+        return (argb & 0xFF) / 255.0;
+    }
+
+    // Keeps the source alpha and rounds each clamped channel the same way PixelWriter.setColor does.
+    private static int pack(int source, double r, double g, double b) {
+        return (source & 0xFF000000) | (to8Bit(r) << 16) | (to8Bit(g) << 8) | to8Bit(b);
+    }
+
+    private static int to8Bit(double value) {
+        if (value <= 0.0) return 0;
+        if (value >= 1.0) return 255;
+        return (int) Math.round(value * 255.0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.photobooth.util;
+
+import javafx.scene.paint.Color;
+
+// 64-bit FNV-1a over a sequence of typed values. Only primitive bits and string characters are
+// hashed, never identity hash codes, so a fingerprint is stable across runs and can be persisted.
+public class Fingerprint {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+
+    public Fingerprint() {
+    }
+
+    public Fingerprint add(long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= PRIME;
+        }
+        return this;
+    }
+
+    public Fingerprint add(double value) {
+        return add(Double.doubleToLongBits(value));
+    }
+
+    public Fingerprint add(boolean value) {
+        return add(value ? 1L : 0L);
+    }
+
+    // Length-prefixed, so adjacent strings cannot run into each other.
+    public Fingerprint add(String value) {
+        if (value == null) {
+            return add(-1L);
+        }
+        add(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= PRIME;
+        }
+        return this;
+    }
+
+    public Fingerprint add(Enum<?> value) {
+        return add(value != null ? value.name() : null);
+    }
+
+    public Fingerprint add(Color color) {
+        if (color == null) {
+            return add(-1L);
+        }
+        return add(color.getRed()).add(color.getGreen()).add(color.getBlue()).add(color.getOpacity());
+    }
+
+    public long value() {
+        return hash;
+    }
+}
@@ -0,0 +1,123 @@
+package com.photobooth.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Multi-index hashing over 64-bit hashes: each hash is filed under its four 16-bit chunks.
+// Two hashes within distance r agree on at least one chunk to within r / 4 bits, so a lookup
+// probes only the buckets of chunk values that close to the query instead of scanning everything.
+public class HammingIndex<T> {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+
+    private final List<Map<Integer, List<Entry<T>>>> tables;
+    private int size;
+
+    private static class Entry<T> {
+        final long hash;
+        final T value;
+
+        Entry(long hash, T value) {
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    public HammingIndex() {
+        this.tables = new ArrayList<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    public void add(long hash, T value) {
+        Entry<T> entry = new Entry<>(hash, value);
+        for (int i = 0; i < CHUNKS; i++) {
+            tables.get(i).computeIfAbsent(chunk(hash, i), key -> new ArrayList<>()).add(entry);
+        }
+        size++;
+    }
+
+    public boolean remove(long hash, T value) {
+        boolean removed = false;
+        for (int i = 0; i < CHUNKS; i++) {
+            Map<Integer, List<Entry<T>>> table = tables.get(i);
+            int key = chunk(hash, i);
+            List<Entry<T>> bucket = table.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            removed |= bucket.removeIf(entry -> entry.hash == hash && entry.value.equals(value));
+            if (bucket.isEmpty()) {
+                table.remove(key);
+            }
+        }
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    // Returns the closest value within maxDistance, or null.
+    public T findNearest(long hash, int maxDistance) {
+        int chunkRadius = maxDistance / CHUNKS;
+        Entry<T> best = null;
+        int bestDistance = maxDistance + 1;
+
+        for (int i = 0; i < CHUNKS; i++) {
+            for (int key : neighbours(chunk(hash, i), chunkRadius)) {
+                List<Entry<T>> bucket = tables.get(i).get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry<T> entry : bucket) {
+                    int distance = Long.bitCount(entry.hash ^ hash);
+                    if (distance < bestDistance) {
+                        best = entry;
+                        bestDistance = distance;
+                        if (distance == 0) {
+                            return best.value;
+                        }
+                    }
+                }
+            }
+        }
+        return best != null ? best.value : null;
+    }
+
+    public void clear() {
+        for (Map<Integer, List<Entry<T>>> table : tables) {
+            table.clear();
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int chunk(long hash, int index) {
+        return (int) (hash >>> (index * CHUNK_BITS)) & 0xFFFF;
+    }
+
+    private static List<Integer> neighbours(int key, int radius) {
+        List<Integer> keys = new ArrayList<>();
+        keys.add(key);
+        collectFlips(key, radius, 0, keys);
+        return keys;
+    }
+
+    private static void collectFlips(int key, int radius, int fromBit, List<Integer> keys) {
+        if (radius == 0) {
+            return;
+        }
+        for (int bit = fromBit; bit < CHUNK_BITS; bit++) {
+            int flipped = key ^ (1 << bit);
+            keys.add(flipped);
+            collectFlips(flipped, radius - 1, bit + 1, keys);
+        }
+    }
+}
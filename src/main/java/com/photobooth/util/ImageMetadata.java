@@ -0,0 +1,95 @@
+package com.photobooth.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+// What a photo needs before its pixels: size, format and EXIF orientation, all read from the
+// file headers. Dimensions are the stored ones, matching what the decoder will produce.
+public class ImageMetadata {
+
+    private final String format;
+    private final int width;
+    private final int height;
+    private final int orientation;
+    private final byte[] embeddedThumbnail;
+
+    private ImageMetadata(String format, int width, int height, int orientation, byte[] embeddedThumbnail) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.orientation = orientation;
+        this.embeddedThumbnail = embeddedThumbnail;
+    }
+
+    // Returns null when no ImageIO reader understands the file.
+    public static ImageMetadata probe(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            String format;
+            int width;
+            int height;
+            try {
+                reader.setInput(input, true, true);
+                format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+
+            int orientation = JpegExifReader.ORIENTATION_NORMAL;
+            byte[] thumbnail = null;
+            if (format.equals("jpeg")) {
+                JpegExifReader.ExifData exif = JpegExifReader.read(file);
+                if (exif != null) {
+                    orientation = exif.getOrientation();
+                    thumbnail = exif.getThumbnail();
+                }
+            }
+            return new ImageMetadata(format, width, height, orientation, thumbnail);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to probe " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public String getFormat() { return format; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getOrientation() { return orientation; }
+    public byte[] getEmbeddedThumbnail() { return embeddedThumbnail; }
+
+    public boolean hasEmbeddedThumbnail() {
+        return embeddedThumbnail != null && embeddedThumbnail.length > 0;
+    }
+
+    public boolean isLandscape() {
+        return width > height;
+    }
+
+    public boolean isPortrait() {
+        return height > width;
+    }
+
+    @Override
+    public String toString() {
+        return format + " " + width + "x" + height + ", orientation " + orientation;
+    }
+}
@@ -1,18 +1,23 @@
 package com.photobooth.util;
 
+import com.photobooth.model.Theme.FilterType;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 import javafx.embed.swing.SwingFXUtils;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
 
 import static com.photobooth.util.Constants.*;
 
@@ -47,10 +52,100 @@ public class ImageUtils {
         return loadImage(new File(filePath));
     }
 
+    public static Image loadThumbnail(File file){
+        return loadScaledImage(file, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+    }
+
+    public static Image loadPreview(File file){
+        return loadScaledImage(file, PREVIEW_MAX_WIDTH, PREVIEW_MAX_HEIGHT);
+    }
+
+    // Decodes straight to roughly the requested size so full-resolution pixels are never materialized.
+    public static Image loadScaledImage(File file, int maxWidth, int maxHeight){
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        BufferedImage subsampled = readSubsampled(file, maxWidth, maxHeight);
+        if (subsampled != null) {
+            return toFXImage(resizeRaster(toIntArgb(subsampled), maxWidth, maxHeight));
+        }
+
+        Image image = new Image(file.toURI().toString(), maxWidth, maxHeight, true, true);
+        if (image.isError()) {
+            System.err.println("Error loading image: " + file.getName());
+            return null;
+        }
+        return image;
+    }
+
+    public static Image decodeImage(byte[] encoded){
+        Image image = new Image(new ByteArrayInputStream(encoded));
+        return image.isError() ? null : image;
+    }
+
+    // Picks the largest integer subsampling that keeps the limiting side at or above its bound,
+    // so the final bicubic pass only ever shrinks by less than 2x.
+    private static BufferedImage readSubsampled(File file, int maxWidth, int maxHeight){
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                int step = Math.max(1, Math.max(width / maxWidth, height / maxHeight));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BufferedImage toIntArgb(BufferedImage image){
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            return image;
+        }
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = converted.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return converted;
+    }
+
     public static Image resizeImage(Image image, int maxWidth, int maxHeight){
-        double width = image.getWidth();
-        double height = image.getHeight();
+        int[] size = fitWithin(image.getWidth(), image.getHeight(), maxWidth, maxHeight);
+        if (size == null) {
+            return image;
+        }
+
+        BufferedImage resized = resizeBufferedImage(toRaster(image), size[0], size[1]);
+        return toFXImage(resized);
+    }
+
+    public static BufferedImage resizeRaster(BufferedImage image, int maxWidth, int maxHeight){
+        int[] size = fitWithin(image.getWidth(), image.getHeight(), maxWidth, maxHeight);
+        if (size == null) {
+            return image;
+        }
+        return resizeBufferedImage(image, size[0], size[1]);
+    }
 
+    // Returns the downscaled {width, height}, or null when the image already fits.
+    private static int[] fitWithin(double width, double height, int maxWidth, int maxHeight){
         double aspectRatio = width / height;
 
         double newWidth = width;
@@ -67,12 +162,9 @@ public class ImageUtils {
         }
 
         if (newWidth >= width && newHeight >= height) {
-            return image;
+            return null;
         }
-
-        BufferedImage buffered = SwingFXUtils.fromFXImage(image, null);
-        BufferedImage resized = resizeBufferedImage(buffered, (int) newWidth, (int) newHeight);
-        return SwingFXUtils.toFXImage(resized, null);
+        return new int[]{(int) newWidth, (int) newHeight};
     }
 
     public static Image createThumbnail(Image image){
@@ -94,185 +186,98 @@ public class ImageUtils {
     }
 
     public static Image applyGrayscale(Image image, double intensity){
-
-        int width = (int) image.getWidth();
-        int height = (int) image.getHeight();
-
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
-
-                double gray = 0.299 * color.getRed() + 0.587 * color.getGreen() + 0.114 * color.getBlue();
-
-                double red = color.getRed() * (1 - intensity) + gray * intensity;
-                double green = color.getGreen() * (1 - intensity) + gray * intensity;
-                double blue = color.getBlue() * (1 - intensity) + gray * intensity;
-
-                writer.setColor(x, y, Color.color(red, green, blue, color.getOpacity()));
-            }
-        }
-        return result;
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.GRAYSCALE, intensity));
     }
 
     public static Image applySepia(Image image, double intensity) {
-        int width = (int) image.getWidth();
-        int height = (int) image.getHeight();
-
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
-
-                double tr = 0.393 * color.getRed() + 0.769 * color.getGreen() + 0.189 * color.getBlue();
-                double tg = 0.349 * color.getRed() + 0.686 * color.getGreen() + 0.168 * color.getBlue();
-                double tb = 0.272 * color.getRed() + 0.534 * color.getGreen() + 0.131 * color.getBlue();
-
-                tr = Math.min(1.0, tr);
-                tg = Math.min(1.0, tg);
-                tb = Math.min(1.0, tb);
-
-                double r = color.getRed() * (1 - intensity) + tr * intensity;
-                double g = color.getGreen() * (1 - intensity) + tg * intensity;
-                double b = color.getBlue() * (1 - intensity) + tb * intensity;
-
-                writer.setColor(x, y, new Color(r, g, b, color.getOpacity()));
-            }
-        }
-
-        return result;
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.SEPIA, intensity));
     }
 
     public static Image applyVibrant(Image image, double intensity) {
-        int width = (int) image.getWidth();
-        int height = (int) image.getHeight();
-
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
-
-        double saturation = 1.0 + intensity;
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
-
-                double hue = color.getHue();
-                double sat = color.getSaturation();
-                double bright = color.getBrightness();
-
-                sat = Math.min(1.0, sat * saturation);
-
-                Color newColor = Color.hsb(hue, sat, bright, color.getOpacity());
-                writer.setColor(x, y, newColor);
-            }
-        }
-
-        return result;
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.VIBRANT, intensity));
     }
 
     public static Image applyBrightness(Image image, double intensity) {
-        int width = (int) image.getWidth();
-        int height = (int) image.getHeight();
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.BRIGHTNESS, intensity));
+    }
 
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
+    public static Image applyContrast(Image image, double intensity) {
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.CONTRAST, intensity));
+    }
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
+    public static Image applyWarmTone(Image image, double intensity) {
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.WARM, intensity));
+    }
 
-                double r = Math.max(0.0, Math.min(1.0, color.getRed() + intensity));
-                double g = Math.max(0.0, Math.min(1.0, color.getGreen() + intensity));
-                double b = Math.max(0.0, Math.min(1.0, color.getBlue() + intensity));
+    public static Image applyCoolTone(Image image, double intensity) {
+        return applyKernel(image, FilterLookupTables.kernelFor(FilterType.COOL, intensity));
+    }
 
-                writer.setColor(x, y, new Color(r, g, b, color.getOpacity()));
-            }
+    public static Image applyColorMatrix(Image image, ColorMatrix matrix) {
+        if (matrix.isIdentity()) {
+            return image;
         }
-
-        return result;
+        return applyKernel(image, matrix.toKernel());
     }
 
-    public static Image applyContrast(Image image, double intensity) {
+    public static Image applyKernel(Image image, PixelKernel kernel) {
         int width = (int) image.getWidth();
         int height = (int) image.getHeight();
 
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
-
-        double contrast = 1.0 + intensity;
-        double factor = (259.0 * (contrast + 255.0)) / (255.0 * (259.0 - contrast));
+        int[] pixels = readArgb(image);
+        ParallelPixelExecutor.apply(pixels, width, height, kernel);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
-
-                double r = factor * (color.getRed() - 0.5) + 0.5;
-                double g = factor * (color.getGreen() - 0.5) + 0.5;
-                double b = factor * (color.getBlue() - 0.5) + 0.5;
-
-                r = Math.max(0.0, Math.min(1.0, r));
-                g = Math.max(0.0, Math.min(1.0, g));
-                b = Math.max(0.0, Math.min(1.0, b));
-
-                writer.setColor(x, y, new Color(r, g, b, color.getOpacity()));
-            }
-        }
+        return toImage(pixels, width, height);
+    }
 
-        return result;
+    public static void applyKernel(BufferedImage raster, PixelKernel kernel) {
+        ParallelPixelExecutor.apply(pixelsOf(raster), raster.getWidth(), raster.getHeight(), kernel);
     }
 
-    public static Image applyWarmTone(Image image, double intensity) {
+    // Render stages share one TYPE_INT_ARGB raster; these are the only crossings to and from JavaFX.
+    public static BufferedImage toRaster(Image image) {
         int width = (int) image.getWidth();
         int height = (int) image.getHeight();
 
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
-
-                double r = Math.min(1.0, color.getRed() + 0.1 * intensity);
-                double g = Math.min(1.0, color.getGreen() + 0.05 * intensity);
-                double b = Math.max(0.0, color.getBlue() - 0.1 * intensity);
+        BufferedImage raster = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), pixelsOf(raster), 0, width);
+        return raster;
+    }
 
-                writer.setColor(x, y, new Color(r, g, b, color.getOpacity()));
-            }
+    public static WritableImage toFXImage(BufferedImage raster) {
+        if (raster.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return SwingFXUtils.toFXImage(raster, null);
         }
+        return toImage(pixelsOf(raster), raster.getWidth(), raster.getHeight());
+    }
 
-        return result;
+    public static BufferedImage copyRaster(BufferedImage raster) {
+        BufferedImage source = toIntArgb(raster);
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = pixelsOf(source);
+        System.arraycopy(pixels, 0, pixelsOf(copy), 0, pixels.length);
+        return copy;
     }
 
-    public static Image applyCoolTone(Image image, double intensity) {
+    public static int[] pixelsOf(BufferedImage raster) {
+        return ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+    }
+
+    public static int[] readArgb(Image image) {
         int width = (int) image.getWidth();
         int height = (int) image.getHeight();
 
-        WritableImage result = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = result.getPixelWriter();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = reader.getColor(x, y);
-
-                double r = Math.max(0.0, color.getRed() - 0.1 * intensity);
-                double g = color.getGreen();
-                double b = Math.min(1.0, color.getBlue() + 0.1 * intensity);
-
-                writer.setColor(x, y, new Color(r, g, b, color.getOpacity()));
-            }
-        }
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return pixels;
+    }
 
+    public static WritableImage toImage(int[] argb, int width, int height) {
+        WritableImage result = new WritableImage(width, height);
+        result.getPixelWriter().setPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), argb, 0, width);
         return result;
     }
 
@@ -0,0 +1,161 @@
+package com.photobooth.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Walks the JPEG marker segments up to the first scan and pulls the orientation tag and the
+// IFD1 thumbnail out of the EXIF APP1 block, without touching the entropy-coded image data.
+public class JpegExifReader {
+
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_EOI = 0xD9;
+    private static final int MARKER_APP1 = 0xE1;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+    private static final int TAG_THUMBNAIL_LENGTH = 0x0202;
+
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+
+    public static final int ORIENTATION_NORMAL = 1;
+
+    public static class ExifData {
+        private final int orientation;
+        private final byte[] thumbnail;
+
+        ExifData(int orientation, byte[] thumbnail) {
+            this.orientation = orientation;
+            this.thumbnail = thumbnail;
+        }
+
+        public int getOrientation() { return orientation; }
+        public byte[] getThumbnail() { return thumbnail; }
+
+        public boolean hasThumbnail() {
+            return thumbnail != null && thumbnail.length > 0;
+        }
+    }
+
+    private JpegExifReader() {
+        throw new AssertionError("Cannot instantiate JpegExifReader class");
+    }
+
+    public static boolean isJpeg(File file) {
+        String extension = ImageUtils.getFileExtension(file);
+        return extension.equals("jpg") || extension.equals("jpeg");
+    }
+
+    // Returns null when the file is not a JPEG or carries no EXIF block.
+    public static ExifData read(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readUnsignedByte() != 0xFF || in.readUnsignedByte() != MARKER_SOI) {
+                return null;
+            }
+
+            while (true) {
+                int marker = nextMarker(in);
+                if (marker == MARKER_SOS || marker == MARKER_EOI) {
+                    return null;
+                }
+
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return null;
+                }
+
+                if (marker == MARKER_APP1 && length > 6) {
+                    byte[] segment = new byte[length];
+                    in.readFully(segment);
+                    if (isExifHeader(segment)) {
+                        return parseTiff(ByteBuffer.wrap(segment, 6, length - 6).slice());
+                    }
+                } else {
+                    in.skipNBytes(length);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read EXIF data from " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int nextMarker(DataInputStream in) throws IOException {
+        int value = in.readUnsignedByte();
+        while (value != 0xFF) {
+            value = in.readUnsignedByte();
+        }
+        while (value == 0xFF) {
+            value = in.readUnsignedByte();
+        }
+        return value;
+    }
+
+    private static boolean isExifHeader(byte[] segment) {
+        return segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i' && segment[3] == 'f'
+                && segment[4] == 0 && segment[5] == 0;
+    }
+
+    private static ExifData parseTiff(ByteBuffer tiff) {
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return null;
+        }
+
+        int ifd0 = tiff.getInt(4);
+        int orientation = ORIENTATION_NORMAL;
+        int entries = tiff.getShort(ifd0) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd0 + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xFFFF) == TAG_ORIENTATION) {
+                orientation = readValue(tiff, entry);
+            }
+        }
+
+        byte[] thumbnail = null;
+        int ifd1 = tiff.getInt(ifd0 + 2 + entries * 12);
+        if (ifd1 > 0 && ifd1 + 2 <= tiff.limit()) {
+            int offset = -1;
+            int length = -1;
+            int ifd1Entries = tiff.getShort(ifd1) & 0xFFFF;
+            for (int i = 0; i < ifd1Entries; i++) {
+                int entry = ifd1 + 2 + i * 12;
+                int tag = tiff.getShort(entry) & 0xFFFF;
+                if (tag == TAG_THUMBNAIL_OFFSET) {
+                    offset = readValue(tiff, entry);
+                } else if (tag == TAG_THUMBNAIL_LENGTH) {
+                    length = readValue(tiff, entry);
+                }
+            }
+            if (offset > 0 && length > 0 && offset + length <= tiff.limit()) {
+                thumbnail = new byte[length];
+                tiff.get(offset, thumbnail);
+            }
+        }
+
+        return new ExifData(orientation, thumbnail);
+    }
+
+    private static int readValue(ByteBuffer tiff, int entry) {
+        int type = tiff.getShort(entry + 2) & 0xFFFF;
+        if (type == TYPE_SHORT) {
+            return tiff.getShort(entry + 8) & 0xFFFF;
+        }
+        if (type == TYPE_LONG) {
+            return tiff.getInt(entry + 8);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+// Decoded pixels in a direct buffer, so originals resident in the pixel store stay off the Java
+// heap. JavaFX only displays premultiplied IntBuffers, so pixels are kept as INT_ARGB_PRE. The
+// render pipeline works on heap rasters: each render still takes a short-lived plain ARGB copy
+// through toRaster(), so only the resident originals are off-heap, not the renders. Off-heap
+// mode therefore lowers heap use while photos are idle, not the peak while one is rendering.
+public class OffHeapImage {
+
+    private final int width;
+    private final int height;
+    private final IntBuffer pixels;
+    private final WritableImage image;
+
+    private OffHeapImage(int width, int height, IntBuffer pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.image = new WritableImage(new PixelBuffer<>(width, height, pixels,
+                PixelFormat.getIntArgbPreInstance()));
+    }
+
+    public static OffHeapImage copyOf(Image source) {
+        int width = (int) source.getWidth();
+        int height = (int) source.getHeight();
+
+        IntBuffer pixels = ByteBuffer.allocateDirect(width * height * 4)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+        source.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbPreInstance(), pixels, width);
+        pixels.clear();
+        return new OffHeapImage(width, height, pixels);
+    }
+
+    public Image getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long sizeInBytes() {
+        return (long) width * height * 4;
+    }
+
+    public BufferedImage toRaster() {
+        BufferedImage raster = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] argb = ImageUtils.pixelsOf(raster);
+        pixels.get(0, argb);
+        unpremultiply(argb);
+        return raster;
+    }
+
+    // Opaque pixels, the common case for photos, are identical in both forms.
+    private static void unpremultiply(int[] argb) {
+        for (int i = 0; i < argb.length; i++) {
+            int p = argb[i];
+            int a = p >>> 24;
+            if (a == 255) {
+                continue;
+            }
+            if (a == 0) {
+                argb[i] = 0;
+                continue;
+            }
+            int half = a >> 1;
+            int r = Math.min(255, (((p >> 16) & 0xFF) * 255 + half) / a);
+            int g = Math.min(255, (((p >> 8) & 0xFF) * 255 + half) / a);
+            int b = Math.min(255, ((p & 0xFF) * 255 + half) / a);
+            argb[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.photobooth.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.photobooth.util.Constants.*;
+
+public class ParallelPixelExecutor {
+
+    private static final int BANDS_PER_THREAD = 4;
+
+    // Published without a lock so the render path never waits on reconfiguration; a replaced
+    // pool is retired and only shut down once the invokes already running on it have returned.
+    private static volatile PoolLease lease;
+    private static volatile int parallelism = Integer.getInteger("photobooth.filter.parallelism",
+            Runtime.getRuntime().availableProcessors());
+    private static volatile int parallelThreshold = FILTER_PARALLEL_THRESHOLD_PIXELS;
+
+    private ParallelPixelExecutor() {
+        throw new AssertionError("Cannot instantiate ParallelPixelExecutor class");
+    }
+
+    public static void apply(int[] argb, int width, int height, PixelKernel kernel) {
+        if ((long) width * height < parallelThreshold) {
+            kernel.apply(argb, 0, width * height);
+            return;
+        }
+
+        PoolLease current = acquireLease();
+        if (current == null) {
+            kernel.apply(argb, 0, width * height);
+            return;
+        }
+
+        try {
+            int bandRows = Math.max(1, height / (current.pool.getParallelism() * BANDS_PER_THREAD));
+            current.pool.invoke(new BandTask(argb, width, 0, height, bandRows, kernel));
+        } finally {
+            current.release();
+        }
+    }
+
+    public static synchronized void setParallelism(int threads) {
+        int value = Math.max(1, threads);
+        if (value == parallelism) {
+            return;
+        }
+        parallelism = value;
+        retireLease();
+    }
+
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    public static void setParallelThreshold(int pixels) {
+        parallelThreshold = Math.max(0, pixels);
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static synchronized void shutdown() {
+        retireLease();
+    }
+
+    // Returns a lease the caller must release, or null when filtering should run on the caller.
+    private static PoolLease acquireLease() {
+        while (parallelism > 1) {
+            PoolLease current = lease;
+            if (current == null && (current = createLease()) == null) {
+                return null;
+            }
+            if (current.acquire()) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    private static synchronized PoolLease createLease() {
+        if (parallelism <= 1) {
+            return null;
+        }
+        if (lease == null) {
+            lease = new PoolLease(new ForkJoinPool(parallelism));
+        }
+        return lease;
+    }
+
+    private static void retireLease() {
+        PoolLease retired = lease;
+        lease = null;
+        if (retired != null) {
+            retired.retire();
+        }
+    }
+
+    // Counts the invokes running on a pool so that retiring it never rejects one of them.
+    private static final class PoolLease {
+        private final ForkJoinPool pool;
+        private int users;
+        private boolean retired;
+
+        PoolLease(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        synchronized boolean acquire() {
+            if (retired) {
+                return false;
+            }
+            users++;
+            return true;
+        }
+
+        synchronized void release() {
+            users--;
+            if (retired && users == 0) {
+                pool.shutdown();
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            if (users == 0) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Splits [startRow, endRow) in half until a band is small enough to run inline.
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] argb;
+        private final int width;
+        private final int startRow;
+        private final int endRow;
+        private final int bandRows;
+        private final transient PixelKernel kernel;
+
+        BandTask(int[] argb, int width, int startRow, int endRow, int bandRows, PixelKernel kernel) {
+            this.argb = argb;
+            this.width = width;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.bandRows = bandRows;
+            this.kernel = kernel;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= bandRows) {
+                kernel.apply(argb, startRow * width, endRow * width);
+                return;
+            }
+
+            int middle = (startRow + endRow) >>> 1;
+            invokeAll(new BandTask(argb, width, startRow, middle, bandRows, kernel),
+                    new BandTask(argb, width, middle, endRow, bandRows, kernel));
+        }
+    }
+}
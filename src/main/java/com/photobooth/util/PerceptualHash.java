@@ -0,0 +1,59 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+
+// 64-bit difference hash: the image is box-averaged to a 9x8 luma grid and each bit records
+// whether a cell is brighter than its right neighbour. Re-encodes, rescales and small exposure
+// changes move only a few bits, so near-duplicates sit within a small Hamming distance.
+public class PerceptualHash {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    private PerceptualHash() {
+        throw new AssertionError("Cannot instantiate PerceptualHash class");
+    }
+
+    // Meant for thumbnails; the cost is one pass over the pixels it is given.
+    public static long dHash(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] argb = ImageUtils.readArgb(image);
+
+        long[] sums = new long[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            int row = (y * GRID_HEIGHT / height) * GRID_WIDTH;
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int p = argb[offset + x];
+                int luma = (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+                int cell = row + x * GRID_WIDTH / width;
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int cell = y * GRID_WIDTH + x;
+                // Compared as cross products so cells of unequal pixel counts need no division.
+                boolean brighter = sums[cell] * Math.max(1, counts[cell + 1])
+                        > sums[cell + 1] * Math.max(1, counts[cell]);
+                hash = (hash << 1) | (brighter ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    // Blank frames, and anything without horizontal structure, hash to zero and say nothing
+    // about whether two photos are the same shot.
+    public static boolean isDistinctive(long hash) {
+        return hash != 0;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,131 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.photobooth.util.Constants.*;
+
+// Holds decoded originals under a byte budget, evicting the least recently used. Photos keep
+// only their metadata and re-decode from the source file after an eviction. Renders read back
+// from RenderSpill share the same budget and are re-read from their spill file. In off-heap mode
+// the pixels are moved into direct buffers and the stored Image is a PixelBuffer view of them.
+// That only reduces heap use while photos sit idle in the store: filters and renders still work
+// on a heap copy, so the heap peak during a render is the same in either mode.
+public class PhotoPixelStore {
+
+    private static final Map<String, Object> IMAGES = new LinkedHashMap<>(16, 0.75f, true);
+
+    // -Dphotobooth.store.offheap=true keeps idle originals in direct buffers; renders still copy
+    // them to the heap while they run.
+    private static boolean offHeap = Boolean.getBoolean("photobooth.store.offheap");
+    private static long budgetBytes = Long.getLong("photobooth.store.budget.mb",
+            PHOTO_STORE_BUDGET_MB) * 1024 * 1024;
+    private static long usedBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private PhotoPixelStore() {
+        throw new AssertionError("Cannot instantiate PhotoPixelStore class");
+    }
+
+    public static synchronized Image get(String photoId) {
+        Object entry = IMAGES.get(photoId);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry instanceof OffHeapImage stored ? stored.getImage() : (Image) entry;
+    }
+
+    // Off-heap entries are copied straight from their buffer, skipping the JavaFX pixel reader.
+    public static synchronized BufferedImage getRaster(String photoId) {
+        Object entry = IMAGES.get(photoId);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry instanceof OffHeapImage stored
+                ? stored.toRaster()
+                : ImageUtils.toRaster((Image) entry);
+    }
+
+    // Returns the image callers should hold on to, which is the off-heap view in off-heap mode.
+    public static Image put(String photoId, Image image) {
+        Object entry = isOffHeap() ? OffHeapImage.copyOf(image) : image;
+        synchronized (PhotoPixelStore.class) {
+            Object previous = IMAGES.put(photoId, entry);
+            if (previous != null) {
+                usedBytes -= sizeOf(previous);
+            }
+            usedBytes += sizeOf(entry);
+            evictToBudget();
+        }
+        return entry instanceof OffHeapImage stored ? stored.getImage() : image;
+    }
+
+    public static synchronized void remove(String photoId) {
+        Object removed = IMAGES.remove(photoId);
+        if (removed != null) {
+            usedBytes -= sizeOf(removed);
+        }
+    }
+
+    // Applies to images stored from now on; entries already stored keep their current form.
+    public static synchronized void setOffHeap(boolean enabled) {
+        offHeap = enabled;
+    }
+
+    public static synchronized boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public static synchronized void clear() {
+        IMAGES.clear();
+        usedBytes = 0;
+    }
+
+    public static synchronized void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(0, bytes);
+        evictToBudget();
+    }
+
+    public static synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public static synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public static synchronized String getStatistics() {
+        return String.format("Pixel store (%s): %d images, %.1f of %.1f MB, %d hits, %d misses, %d evictions",
+                offHeap ? "off-heap" : "heap", IMAGES.size(), usedBytes / (1024.0 * 1024.0), budgetBytes / (1024.0 * 1024.0),
+                hits, misses, evictions);
+    }
+
+    public static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    private static long sizeOf(Object entry) {
+        return entry instanceof OffHeapImage stored ? stored.sizeInBytes() : sizeOf((Image) entry);
+    }
+
+    // The most recently used image always stays, even when it alone exceeds the budget.
+    private static void evictToBudget() {
+        Iterator<Map.Entry<String, Object>> iterator = IMAGES.entrySet().iterator();
+        while (usedBytes > budgetBytes && IMAGES.size() > 1 && iterator.hasNext()) {
+            Map.Entry<String, Object> eldest = iterator.next();
+            usedBytes -= sizeOf(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
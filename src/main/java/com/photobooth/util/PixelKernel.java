@@ -0,0 +1,11 @@
+package com.photobooth.util;
+
+/**
+ * A per-pixel operation over packed, non-premultiplied ARGB ints.
+ * Kernels rewrite {@code argb[from..to)} in place and must not allocate per pixel.
+ */
+@FunctionalInterface
+public interface PixelKernel {
+
+    void apply(int[] argb, int from, int to);
+}
@@ -0,0 +1,96 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.photobooth.util.Constants.*;
+
+// Full-size renders that are not being looked at, such as the outputs of a batch apply, are
+// written here as lossless PNG instead of staying on the heap. Reading one back goes through
+// PhotoPixelStore, so rendered pixels share the originals' budget and are evicted with them.
+// Files are deleted when their photo lets go of them, and clean() removes whatever a previous
+// run left behind.
+public class RenderSpill {
+
+    private static final String KEY_PREFIX = "render:";
+
+    private static Path directory = Paths.get(System.getProperty("photobooth.render.spill.dir",
+            Paths.get(System.getProperty("java.io.tmpdir"), RENDER_SPILL_DIRECTORY).toString()));
+
+    private RenderSpill() {
+        throw new AssertionError("Cannot instantiate RenderSpill class");
+    }
+
+    // Null when the render could not be written; the caller keeps nothing in that case.
+    public static File write(String photoId, Image image) {
+        Path spillDirectory = getDirectory();
+        File file;
+        try {
+            Files.createDirectories(spillDirectory);
+            file = Files.createTempFile(spillDirectory, photoId + "-", ".png").toFile();
+        } catch (IOException e) {
+            System.err.println("Failed to create render spill file: " + e.getMessage());
+            return null;
+        }
+        if (!ImageUtils.saveAsPNG(image, file)) {
+            file.delete();
+            return null;
+        }
+        return file;
+    }
+
+    public static Image read(File file) {
+        String key = KEY_PREFIX + file.getPath();
+        Image image = PhotoPixelStore.get(key);
+        if (image == null) {
+            image = ImageUtils.loadImage(file);
+            if (image != null) {
+                image = PhotoPixelStore.put(key, image);
+            }
+        }
+        return image;
+    }
+
+    public static void discard(File file) {
+        if (file == null) {
+            return;
+        }
+        PhotoPixelStore.remove(KEY_PREFIX + file.getPath());
+        if (!file.delete() && file.exists()) {
+            System.err.println("Failed to delete render spill file: " + file);
+        }
+    }
+
+    // Called at startup, before anything has been spilled, so every file found is stale.
+    public static void clean() {
+        Path spillDirectory = getDirectory();
+        if (!Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spillDirectory, "*.png")) {
+            for (Path path : stream) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete render spill file: " + path);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to clean render spill directory: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void setDirectory(Path newDirectory) {
+        directory = newDirectory;
+    }
+
+    public static synchronized Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,353 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.photobooth.util.Constants.*;
+
+// Keeps gallery thumbnails on disk so a restart or a re-import of the same card skips decoding.
+// Entries are keyed by source path, size and modification time, so an edited file simply misses
+// and its stale entry ages out. Each entry is a fixed header followed by the thumbnail encoded
+// as JPEG, or as PNG when it has transparency. Entries are read with a plain file read, so no
+// mapping holds the file open against eviction. Eviction drops the least recently read entries.
+public class ThumbnailDiskCache {
+
+    private static final int MAGIC = 0x50425448; // "PBTH"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 * 4 + 8 * 2 + 4 * 3;
+    private static final int MAX_THUMBNAIL_SIDE = 4096;
+    private static final String EXTENSION = ".thumb";
+
+    private static Path directory = Paths.get(System.getProperty("photobooth.cache.dir",
+            Paths.get(System.getProperty("user.home"), APP_DATA_DIRECTORY, THUMBNAIL_CACHE_DIRECTORY).toString()));
+    private static long budgetBytes = Long.getLong("photobooth.thumbnail.cache.mb",
+            THUMBNAIL_CACHE_BUDGET_MB) * 1024 * 1024;
+    private static boolean scanned;
+    private static long usedBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    public static class Entry {
+        private final Image thumbnail;
+        private final int width;
+        private final int height;
+        private final int orientation;
+
+        Entry(Image thumbnail, int width, int height, int orientation) {
+            this.thumbnail = thumbnail;
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+        }
+
+        public Image getThumbnail() { return thumbnail; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getOrientation() { return orientation; }
+    }
+
+    private ThumbnailDiskCache() {
+        throw new AssertionError("Cannot instantiate ThumbnailDiskCache class");
+    }
+
+    // Returns null on a miss, a stale entry or any read error; callers fall back to decoding.
+    public static Entry get(File source) {
+        if (source == null || !source.isFile()) {
+            return null;
+        }
+
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+        Path path = entryPath(source, sourceSize, sourceModified);
+        if (!Files.isRegularFile(path)) {
+            recordMiss();
+            return null;
+        }
+
+        try {
+            Entry entry = decode(ByteBuffer.wrap(Files.readAllBytes(path)), sourceSize, sourceModified);
+            if (entry == null) {
+                recordMiss();
+                return null;
+            }
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            recordHit();
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read cached thumbnail for " + source.getName() + ": " + e.getMessage());
+            recordMiss();
+            return null;
+        }
+    }
+
+    public static void put(File source, Image thumbnail, int width, int height, int orientation) {
+        if (source == null || thumbnail == null || !source.isFile()) {
+            return;
+        }
+
+        int thumbWidth = (int) thumbnail.getWidth();
+        int thumbHeight = (int) thumbnail.getHeight();
+        if (thumbWidth <= 0 || thumbHeight <= 0) {
+            return;
+        }
+
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+        Path path = entryPath(source, sourceSize, sourceModified);
+        try {
+            byte[] encoded = encode(thumbnail);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + encoded.length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(thumbWidth).putInt(thumbHeight)
+                    .putLong(sourceSize).putLong(sourceModified)
+                    .putInt(width).putInt(height).putInt(orientation)
+                    .put(encoded);
+            buffer.flip();
+
+            Files.createDirectories(directory);
+            // Written aside and moved into place so a concurrent reader never sees a partial file.
+            Path temp = Files.createTempFile(directory, "thumb", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            commitWrite(temp, path);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to cache thumbnail for " + source.getName() + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized void clear() {
+        for (Path path : listEntries()) {
+            deleteQuietly(path);
+        }
+        usedBytes = 0;
+        scanned = true;
+    }
+
+    public static synchronized void setDirectory(Path cacheDirectory) {
+        directory = cacheDirectory;
+        scanned = false;
+        usedBytes = 0;
+    }
+
+    public static synchronized void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(0, bytes);
+        evictToBudget();
+    }
+
+    public static synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public static synchronized long getUsedBytes() {
+        scanIfNeeded();
+        return usedBytes;
+    }
+
+    public static synchronized String getStatistics() {
+        scanIfNeeded();
+        return String.format("Thumbnail cache: %.1f of %.1f MB, %d hits, %d misses, %d evictions",
+                usedBytes / (1024.0 * 1024.0), budgetBytes / (1024.0 * 1024.0), hits, misses, evictions);
+    }
+
+    private static Entry decode(ByteBuffer buffer, long sourceSize, long sourceModified) {
+        if (buffer.remaining() < HEADER_BYTES
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+
+        int thumbWidth = buffer.getInt();
+        int thumbHeight = buffer.getInt();
+        if (buffer.getLong() != sourceSize || buffer.getLong() != sourceModified) {
+            return null;
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int orientation = buffer.getInt();
+
+        if (thumbWidth <= 0 || thumbHeight <= 0
+                || thumbWidth > MAX_THUMBNAIL_SIDE || thumbHeight > MAX_THUMBNAIL_SIDE) {
+            return null;
+        }
+
+        byte[] encoded = new byte[buffer.remaining()];
+        buffer.get(encoded);
+        BufferedImage raster;
+        try {
+            raster = ImageIO.read(new ByteArrayInputStream(encoded));
+        } catch (IOException e) {
+            return null;
+        }
+        if (raster == null || raster.getWidth() != thumbWidth || raster.getHeight() != thumbHeight) {
+            return null;
+        }
+        return new Entry(ImageUtils.toFXImage(raster), width, height, orientation);
+    }
+
+    // Opaque thumbnails, which is nearly all photos, go to JPEG; anything with alpha keeps it as PNG.
+    private static byte[] encode(Image thumbnail) throws IOException {
+        BufferedImage raster = ImageUtils.toRaster(thumbnail);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (!isOpaque(raster)) {
+            if (!ImageIO.write(raster, "png", bytes)) {
+                throw new IOException("No PNG writer");
+            }
+            return bytes.toByteArray();
+        }
+
+        BufferedImage rgb = new BufferedImage(raster.getWidth(), raster.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = rgb.createGraphics();
+        g2d.drawImage(raster, 0, 0, null);
+        g2d.dispose();
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(THUMBNAIL_CACHE_JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isOpaque(BufferedImage raster) {
+        for (int pixel : ImageUtils.pixelsOf(raster)) {
+            if (pixel >>> 24 != 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Path entryPath(File source, long sourceSize, long sourceModified) {
+        String key = source.getAbsolutePath() + '|' + sourceSize + '|' + sourceModified;
+        return directory.resolve(Long.toHexString(fnv1a64(key)) + EXTENSION);
+    }
+
+    private static long fnv1a64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static synchronized void recordHit() {
+        hits++;
+    }
+
+    private static synchronized void recordMiss() {
+        misses++;
+    }
+
+    // Moves a finished entry into place and counts the change in size. The directory total is
+    // taken first, so the listing never already includes the entry being counted.
+    private static synchronized void commitWrite(Path temp, Path path) throws IOException {
+        scanIfNeeded();
+        long previous = Files.isRegularFile(path) ? Files.size(path) : 0;
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        usedBytes += Files.size(path) - previous;
+        evictToBudget();
+    }
+
+    // The directory total is only known after one listing; commitWrite keeps it up to date after that.
+    private static void scanIfNeeded() {
+        if (scanned) {
+            return;
+        }
+        usedBytes = 0;
+        for (Path path : listEntries()) {
+            try {
+                usedBytes += Files.size(path);
+            } catch (IOException e) {
+                // Vanished between listing and sizing.
+            }
+        }
+        scanned = true;
+    }
+
+    // Reads touch the modification time, so the oldest timestamps are the least recently used.
+    private static void evictToBudget() {
+        scanIfNeeded();
+        if (usedBytes <= budgetBytes) {
+            return;
+        }
+
+        List<Path> entries = listEntries();
+        entries.sort(Comparator.comparingLong(ThumbnailDiskCache::lastModified));
+        for (Path path : entries) {
+            if (usedBytes <= budgetBytes) {
+                break;
+            }
+            try {
+                long size = Files.size(path);
+                if (deleteQuietly(path)) {
+                    usedBytes -= size;
+                    evictions++;
+                }
+            } catch (IOException e) {
+                // Already gone.
+            }
+        }
+    }
+
+    private static List<Path> listEntries() {
+        List<Path> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : stream) {
+                entries.add(path);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list thumbnail cache: " + e.getMessage());
+        }
+        return entries;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean deleteQuietly(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
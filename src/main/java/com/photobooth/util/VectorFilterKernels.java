@@ -0,0 +1,163 @@
+package com.photobooth.util;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.photobooth.util.FilterLookupTables.FRACTION_BITS;
+import static com.photobooth.util.FilterLookupTables.HALF;
+import static com.photobooth.util.FilterLookupTables.ONE;
+
+// Only loaded through VectorFilterSupport once jdk.incubator.vector is known to be resolved.
+// Each kernel mirrors the fixed-point recipe in FilterLookupTables and hands the sub-vector
+// tail of every range to the scalar table kernel. Loop bodies are written out in full: C2 must
+// inline every vector operation, and a shared helper pushes the larger kernels past its budget.
+final class VectorFilterKernels {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private VectorFilterKernels() {
+        throw new AssertionError("Cannot instantiate VectorFilterKernels class");
+    }
+
+    static PixelKernel brightness(int offset, PixelKernel tail) {
+        return new BrightnessKernel(offset, tail);
+    }
+
+    static PixelKernel contrast(int factor, PixelKernel tail) {
+        return new ContrastKernel(factor, tail);
+    }
+
+    static PixelKernel matrix(int[] coefficients, PixelKernel tail) {
+        return new MatrixKernel(coefficients, tail);
+    }
+
+    private static final class BrightnessKernel implements PixelKernel {
+        private final int bias;
+        private final PixelKernel tail;
+
+        BrightnessKernel(int offset, PixelKernel tail) {
+            this.bias = offset + HALF;
+            this.tail = tail;
+        }
+
+        @Override
+        public void apply(int[] argb, int from, int to) {
+            int i = from;
+            int bound = from + SPECIES.loopBound(to - from);
+            for (; i < bound; i += SPECIES.length()) {
+                IntVector p = IntVector.fromArray(SPECIES, argb, i);
+                IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+                IntVector b = p.and(0xFF);
+
+                IntVector outR = r.lanewise(VectorOperators.LSHL, FRACTION_BITS).add(bias)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS).max(0).min(255);
+                IntVector outG = g.lanewise(VectorOperators.LSHL, FRACTION_BITS).add(bias)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS).max(0).min(255);
+                IntVector outB = b.lanewise(VectorOperators.LSHL, FRACTION_BITS).add(bias)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS).max(0).min(255);
+
+                p.and(0xFF000000)
+                        .or(outR.lanewise(VectorOperators.LSHL, 16))
+                        .or(outG.lanewise(VectorOperators.LSHL, 8))
+                        .or(outB)
+                        .intoArray(argb, i);
+            }
+            tail.apply(argb, i, to);
+        }
+    }
+
+    // (f * (2v - 255) + 255 + 1) >> 17, rewritten as v * 2f + bias.
+    private static final class ContrastKernel implements PixelKernel {
+        private final int scale;
+        private final int bias;
+        private final PixelKernel tail;
+
+        ContrastKernel(int factor, PixelKernel tail) {
+            this.scale = 2 * factor;
+            this.bias = 255 * ONE + ONE - 255 * factor;
+            this.tail = tail;
+        }
+
+        @Override
+        public void apply(int[] argb, int from, int to) {
+            int i = from;
+            int bound = from + SPECIES.loopBound(to - from);
+            for (; i < bound; i += SPECIES.length()) {
+                IntVector p = IntVector.fromArray(SPECIES, argb, i);
+                IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+                IntVector b = p.and(0xFF);
+
+                IntVector outR = r.mul(scale).add(bias)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS + 1).max(0).min(255);
+                IntVector outG = g.mul(scale).add(bias)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS + 1).max(0).min(255);
+                IntVector outB = b.mul(scale).add(bias)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS + 1).max(0).min(255);
+
+                p.and(0xFF000000)
+                        .or(outR.lanewise(VectorOperators.LSHL, 16))
+                        .or(outG.lanewise(VectorOperators.LSHL, 8))
+                        .or(outB)
+                        .intoArray(argb, i);
+            }
+            tail.apply(argb, i, to);
+        }
+    }
+
+    // All terms are non-negative, so only the upper clamp is needed.
+    private static final class MatrixKernel implements PixelKernel {
+        private final int keep;
+        private final int rr, rg, rb;
+        private final int gr, gg, gb;
+        private final int br, bg, bb;
+        private final int cap;
+        private final PixelKernel tail;
+
+        MatrixKernel(int[] c, PixelKernel tail) {
+            this.keep = c[0];
+            this.rr = c[1];
+            this.rg = c[2];
+            this.rb = c[3];
+            this.gr = c[4];
+            this.gg = c[5];
+            this.gb = c[6];
+            this.br = c[7];
+            this.bg = c[8];
+            this.bb = c[9];
+            this.cap = c[10];
+            this.tail = tail;
+        }
+
+        @Override
+        public void apply(int[] argb, int from, int to) {
+            int i = from;
+            int bound = from + SPECIES.loopBound(to - from);
+            for (; i < bound; i += SPECIES.length()) {
+                IntVector p = IntVector.fromArray(SPECIES, argb, i);
+                IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+                IntVector b = p.and(0xFF);
+
+                IntVector outR = r.mul(rr).add(g.mul(rg)).add(b.mul(rb)).min(cap)
+                        .add(r.mul(keep)).add(HALF)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS).min(255);
+                IntVector outG = r.mul(gr).add(g.mul(gg)).add(b.mul(gb)).min(cap)
+                        .add(g.mul(keep)).add(HALF)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS).min(255);
+                IntVector outB = r.mul(br).add(g.mul(bg)).add(b.mul(bb)).min(cap)
+                        .add(b.mul(keep)).add(HALF)
+                        .lanewise(VectorOperators.ASHR, FRACTION_BITS).min(255);
+
+                p.and(0xFF000000)
+                        .or(outR.lanewise(VectorOperators.LSHL, 16))
+                        .or(outG.lanewise(VectorOperators.LSHL, 8))
+                        .or(outB)
+                        .intoArray(argb, i);
+            }
+            tail.apply(argb, i, to);
+        }
+    }
+}
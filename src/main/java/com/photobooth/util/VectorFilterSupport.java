@@ -0,0 +1,92 @@
+package com.photobooth.util;
+
+import com.photobooth.model.Theme.FilterType;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class VectorFilterSupport {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final double[] PARITY_INTENSITIES = {0.0, 0.3, 0.7, 1.0};
+    private static final int PARITY_SAMPLE_PIXELS = 4099;
+
+    private static Boolean available;
+
+    private VectorFilterSupport() {
+        throw new AssertionError("Cannot instantiate VectorFilterSupport class");
+    }
+
+    public static boolean supports(FilterType filterType) {
+        return switch (filterType) {
+            case GRAYSCALE, SEPIA, BRIGHTNESS, CONTRAST -> true;
+            default -> false;
+        };
+    }
+
+    public static synchronized boolean isAvailable() {
+        if (available == null) {
+            available = detect();
+            System.out.println("Vector filter kernels: " + (available ? "enabled" : "disabled"));
+        }
+        return available;
+    }
+
+    static PixelKernel kernelFor(FilterType filterType, double intensity) {
+        PixelKernel scalar = FilterLookupTables.buildScalar(filterType, intensity);
+        return switch (filterType) {
+            case BRIGHTNESS -> VectorFilterKernels.brightness(
+                    FilterLookupTables.brightnessOffset(intensity), scalar);
+            case CONTRAST -> VectorFilterKernels.contrast(
+                    FilterLookupTables.contrastFactor(intensity), scalar);
+            case GRAYSCALE, SEPIA -> VectorFilterKernels.matrix(
+                    FilterLookupTables.matrixCoefficients(FilterLookupTables.matrixFor(filterType), intensity),
+                    scalar);
+            default -> throw new IllegalArgumentException("No vector kernel for filter: " + filterType);
+        };
+    }
+
+    private static boolean detect() {
+        if (Boolean.getBoolean("photobooth.vector.disabled")) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return false;
+        }
+
+        try {
+            return passesParityCheck();
+        } catch (LinkageError | RuntimeException e) {
+            System.err.println("Vector filter kernels unavailable: " + e);
+            return false;
+        }
+    }
+
+    // Runs every vector kernel against its scalar table kernel before trusting it.
+    private static boolean passesParityCheck() {
+        int[] sample = new int[PARITY_SAMPLE_PIXELS];
+        Random random = new Random(42);
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = i < 256 ? 0xFF000000 | (i << 16) | (i << 8) | i : random.nextInt();
+        }
+
+        for (FilterType filterType : FilterType.values()) {
+            if (!supports(filterType)) {
+                continue;
+            }
+            for (double intensity : PARITY_INTENSITIES) {
+                int[] expected = sample.clone();
+                int[] actual = sample.clone();
+                FilterLookupTables.buildScalar(filterType, intensity).apply(expected, 0, expected.length);
+                kernelFor(filterType, intensity).apply(actual, 0, actual.length);
+
+                if (!Arrays.equals(expected, actual)) {
+                    System.err.println("Vector kernel mismatch for " + filterType +
+                            " at intensity " + intensity + "; using scalar kernels");
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
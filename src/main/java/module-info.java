@@ -2,6 +2,7 @@ module com.photobooth {
     requires javafx.controls;
     requires javafx.swing;
     requires java.desktop;
+    requires static jdk.incubator.vector;
 
     exports com.photobooth;
     exports com.photobooth.model;
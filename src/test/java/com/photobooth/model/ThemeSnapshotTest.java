@@ -0,0 +1,87 @@
+package com.photobooth.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ThemeSnapshotTest {
+
+    private static List<Theme> presets() {
+        return List.of(Theme.createClassic(), Theme.createVintage(), Theme.createBlackAndWhite(),
+                Theme.createModern(), Theme.createPhotoStrip(), Theme.createCollage(),
+                Theme.createVibrant(), Theme.createGoldenHour());
+    }
+
+    // Name and id are not part of the look, so a renamed copy shares every cached render.
+    @Test
+    void identicalThemesHaveEqualSnapshots() {
+        List<Theme> first = presets();
+        List<Theme> second = presets();
+        for (int i = 0; i < first.size(); i++) {
+            second.get(i).setName("Copy of " + first.get(i).getName());
+            ThemeSnapshot a = first.get(i).snapshot();
+            ThemeSnapshot b = second.get(i).snapshot();
+            assertEquals(a, b);
+            assertEquals(a.hashCode(), b.hashCode());
+            assertEquals(a.getFingerprint(), b.getFingerprint());
+        }
+    }
+
+    @Test
+    void differentPresetsAreNotEqual() {
+        List<Theme> themes = presets();
+        for (int i = 0; i < themes.size(); i++) {
+            for (int j = i + 1; j < themes.size(); j++) {
+                assertNotEquals(themes.get(i).snapshot(), themes.get(j).snapshot(),
+                        themes.get(i).getName() + " vs " + themes.get(j).getName());
+            }
+        }
+    }
+
+    @Test
+    void hiddenTextAndAbsentLogosAreIgnored() {
+        Theme theme = Theme.createClassic();
+        theme.getHeaderText().setEnabled(false);
+        theme.setLogoPath(null);
+        theme.setLogoPosition(Theme.LogoPosition.TOP_LEFT);
+        ThemeSnapshot before = theme.snapshot();
+
+        theme.getHeaderText().setFontSize(theme.getHeaderText().getFontSize() + 12);
+        theme.getHeaderText().setText("Not shown");
+        theme.setLogoPosition(Theme.LogoPosition.BOTTOM_LEFT);
+        ThemeSnapshot after = theme.snapshot();
+
+        assertEquals(before, after);
+        assertEquals(before.hashCode(), after.hashCode());
+        assertEquals(before.getTextParameters(), after.getTextParameters());
+    }
+
+    // A border edit changes the snapshot and the border stage's parameters, but not the filter's.
+    @Test
+    void borderEditsChangeOnlyTheBorderStages() {
+        Theme theme = Theme.createVintage();
+        ThemeSnapshot before = theme.snapshot();
+        theme.setBorderWidth(theme.getBorderWidth() + 5);
+        ThemeSnapshot after = theme.snapshot();
+
+        assertNotEquals(before, after);
+        assertNotEquals(before.getBorderParameters(), after.getBorderParameters());
+        assertEquals(before.getFilterParameters(), after.getFilterParameters());
+        assertEquals(before.getTextParameters(), after.getTextParameters());
+    }
+
+    @Test
+    void stackedFilterLayersAreCompared() {
+        Theme theme = Theme.createVibrant();
+        ThemeSnapshot before = theme.snapshot();
+        theme.addFilterLayer(Theme.FilterType.WARM, 0.3);
+        ThemeSnapshot after = theme.snapshot();
+
+        assertNotEquals(before, after);
+        assertNotEquals(before.getFilterParameters(), after.getFilterParameters());
+        assertEquals(before.getBorderParameters(), after.getBorderParameters());
+    }
+}
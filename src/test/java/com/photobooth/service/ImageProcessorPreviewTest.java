@@ -0,0 +1,33 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Theme;
+import com.photobooth.util.ImageUtils;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ImageProcessorPreviewTest {
+
+    // Every theme card renders from the same proxy, so no theme may draw into it.
+    @Test
+    void renderingThemesLeavesTheSharedProxyUnchanged() {
+        BufferedImage proxy = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ImageUtils.pixelsOf(proxy);
+        Random random = new Random(21L);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        int[] before = pixels.clone();
+
+        // The strip's slots are larger than the proxy, so its resize passes the proxy through.
+        for (Theme theme : List.of(Theme.createVintage(), Theme.createBlackAndWhite(), Theme.createPhotoStrip())) {
+            assertNotNull(ImageProcessor.renderPreview(proxy, 3000, theme.snapshot(), 200, 150));
+            assertArrayEquals(before, pixels, "proxy changed by " + theme.getName());
+        }
+    }
+}
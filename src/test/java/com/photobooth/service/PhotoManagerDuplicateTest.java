@@ -0,0 +1,55 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.util.ImageUtils;
+import com.photobooth.util.JpegExifReader;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PhotoManagerDuplicateTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void onlyIdenticalBytesAreDuplicates() throws IOException {
+        byte[] contents = randomBytes(4096, 1L);
+        PhotoManager manager = new PhotoManager();
+        Photo original = photo("original.jpg", contents);
+        manager.addPhoto(original);
+
+        assertSame(original, manager.findDuplicate(photo("copy.jpg", contents)));
+
+        // Same length, one byte different: the checksums differ and the files must not match.
+        byte[] edited = contents.clone();
+        edited[2048] ^= 1;
+        assertNull(manager.findDuplicate(photo("edited.jpg", edited)));
+        assertNull(manager.findDuplicate(photo("longer.jpg", randomBytes(4097, 1L))));
+
+        manager.removePhoto(original);
+        assertNull(manager.findDuplicate(photo("again.jpg", contents)));
+    }
+
+    // Photos start from a small thumbnail so no file has to be decoded.
+    private Photo photo(String name, byte[] contents) throws IOException {
+        File file = Files.write(directory.resolve(name), contents).toFile();
+        Image thumbnail = ImageUtils.toImage(new int[16 * 16], 16, 16);
+        return new Photo(file, thumbnail, 16, 16, JpegExifReader.ORIENTATION_NORMAL);
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
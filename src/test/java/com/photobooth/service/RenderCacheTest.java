@@ -0,0 +1,121 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Photo;
+import com.photobooth.model.Theme;
+import com.photobooth.model.ThemeSnapshot;
+import com.photobooth.util.ImageUtils;
+import com.photobooth.util.JpegExifReader;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RenderCacheTest {
+
+    // Every output in these tests is 100x100 ARGB.
+    private static final long OUTPUT_BYTES = 100 * 100 * 4;
+
+    @TempDir
+    Path directory;
+
+    private long budgetBytes;
+    private long previewBudgetBytes;
+    private final ThemeSnapshot theme = Theme.createClassic().snapshot();
+
+    @BeforeEach
+    void saveBudgets() {
+        budgetBytes = RenderCache.getBudgetBytes();
+        previewBudgetBytes = RenderCache.getPreviewBudgetBytes();
+        RenderCache.clear();
+    }
+
+    @AfterEach
+    void restoreBudgets() {
+        RenderCache.setBudgetBytes(budgetBytes);
+        RenderCache.setPreviewBudgetBytes(previewBudgetBytes);
+        RenderCache.clear();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedOutput() throws IOException {
+        RenderCache.setBudgetBytes(3 * OUTPUT_BYTES);
+        Photo first = photo("first.jpg");
+        Photo second = photo("second.jpg");
+        Photo third = photo("third.jpg");
+        Photo fourth = photo("fourth.jpg");
+        Image output = output();
+
+        putOutput(first, output);
+        putOutput(second, output);
+        putOutput(third, output);
+        assertSame(output, getOutput(first));
+        putOutput(fourth, output);
+
+        assertNull(getOutput(second));
+        assertNotNull(getOutput(first));
+        assertNotNull(getOutput(third));
+        assertNotNull(getOutput(fourth));
+    }
+
+    // Previews have their own budget, so a run of full-size renders cannot push them out.
+    @Test
+    void previewsSurviveFullSizePressure() throws IOException {
+        RenderCache.setBudgetBytes(2 * OUTPUT_BYTES);
+        RenderCache.setPreviewBudgetBytes(2 * OUTPUT_BYTES);
+        Photo previewed = photo("previewed.jpg");
+        Image preview = output();
+        RenderCache.put(List.of(previewed), theme, 100, 100, preview);
+
+        for (int i = 0; i < 10; i++) {
+            putOutput(photo("render" + i + ".jpg"), output());
+        }
+
+        assertSame(preview, RenderCache.get(List.of(previewed), theme, 100, 100));
+        assertNull(getOutput(previewed));
+    }
+
+    @Test
+    void invalidateDropsEveryEntryWithThePhoto() throws IOException {
+        Photo removed = photo("removed.jpg");
+        Photo kept = photo("kept.jpg");
+        putOutput(removed, output());
+        putOutput(kept, output());
+        RenderCache.put(List.of(removed), theme, 100, 100, output());
+        RenderCache.put(List.of(kept, removed), theme, RenderCache.NATIVE_SIZE, RenderCache.NATIVE_SIZE, output());
+
+        RenderCache.invalidate(removed);
+
+        assertNull(getOutput(removed));
+        assertNull(RenderCache.get(List.of(removed), theme, 100, 100));
+        assertNull(RenderCache.get(List.of(kept, removed), theme, RenderCache.NATIVE_SIZE, RenderCache.NATIVE_SIZE));
+        assertNotNull(getOutput(kept));
+    }
+
+    private void putOutput(Photo photo, Image output) {
+        RenderCache.put(List.of(photo), theme, RenderCache.NATIVE_SIZE, RenderCache.NATIVE_SIZE, output);
+    }
+
+    private Image getOutput(Photo photo) {
+        return RenderCache.get(List.of(photo), theme, RenderCache.NATIVE_SIZE, RenderCache.NATIVE_SIZE);
+    }
+
+    private Photo photo(String name) throws IOException {
+        File file = Files.write(directory.resolve(name), new byte[1]).toFile();
+        return new Photo(file, output(), 100, 100, JpegExifReader.ORIENTATION_NORMAL);
+    }
+
+    private static Image output() {
+        return ImageUtils.toImage(new int[100 * 100], 100, 100);
+    }
+}
@@ -0,0 +1,66 @@
+package com.photobooth.service;
+
+import com.photobooth.model.Theme;
+import com.photobooth.service.RenderGraph.Key;
+import com.photobooth.service.RenderGraph.Node;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RenderGraphTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    void clear() {
+        RenderGraph.clear();
+    }
+
+    @Test
+    void keysBuiltFromEqualPartsAreEqual() {
+        Node source = new Node(Key.of("decode").add("photo-1").build(), false, this::run);
+        List<Object> vintage = Theme.createVintage().snapshot().getFilterParameters();
+        Key first = Key.of("filter").add(source).add(vintage).build();
+        Key second = Key.of("filter").add(source).add(Theme.createVintage().snapshot().getFilterParameters()).build();
+        List<Object> blackAndWhite = Theme.createBlackAndWhite().snapshot().getFilterParameters();
+        Key other = Key.of("filter").add(source).add(blackAndWhite).build();
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, other);
+        assertNotEquals(first, Key.of("border").add(source).add(vintage).build());
+    }
+
+    @Test
+    void memoizedNodesRunOncePerKey() {
+        BufferedImage result = new Node(Key.of("resize").add(640).add(480).build(), true, this::run).evaluate();
+        assertSame(result, new Node(Key.of("resize").add(640).add(480).build(), true, this::run).evaluate());
+        assertEquals(1, runs.get());
+
+        new Node(Key.of("resize").add(640).add(481).build(), true, this::run).evaluate();
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void transientInputsAreNeverMemoized() {
+        Node proxy = new Node(RenderGraph.TRANSIENT, false, false, this::run);
+        Key key = Key.of("resize").add(proxy).add(640).add(480).build();
+        assertSame(RenderGraph.TRANSIENT, key);
+
+        new Node(key, true, this::run).evaluate();
+        new Node(key, true, this::run).evaluate();
+        assertEquals(2, runs.get());
+    }
+
+    private BufferedImage run() {
+        runs.incrementAndGet();
+        return new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+    }
+}
@@ -0,0 +1,113 @@
+package com.photobooth.util;
+
+import com.photobooth.model.Theme.FilterType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColorMatrixTest {
+
+    private static final int SAMPLE_PIXELS = 100_000;
+    // Each of the separate passes rounds to 8 bits; the fused pass rounds once.
+    private static final int SEQUENTIAL_ROUNDING_LEVELS = 2;
+
+    private static final List<List<ColorMatrix>> STACKS = List.of(
+            List.of(ColorMatrix.forFilter(FilterType.WARM, 0.5), ColorMatrix.forFilter(FilterType.CONTRAST, 0.3)),
+            List.of(ColorMatrix.forFilter(FilterType.SEPIA, 0.6), ColorMatrix.forFilter(FilterType.BRIGHTNESS, 0.05)),
+            List.of(ColorMatrix.forFilter(FilterType.GRAYSCALE, 0.4), ColorMatrix.forFilter(FilterType.COOL, 0.3),
+                    ColorMatrix.saturation(1.2)));
+
+    @Test
+    void thenAppliesThisMatrixFirst() {
+        Random random = new Random(5L);
+        for (List<ColorMatrix> stack : STACKS) {
+            ColorMatrix fused = fuse(stack);
+            for (int i = 0; i < 1000; i++) {
+                double[] rgba = {random.nextInt(256), random.nextInt(256), random.nextInt(256), 255};
+                double[] expected = rgba;
+                for (ColorMatrix matrix : stack) {
+                    expected = transform(matrix, expected);
+                }
+                double[] actual = transform(fused, rgba);
+                for (int c = 0; c < 4; c++) {
+                    assertEquals(expected[c], actual[c], 1e-9);
+                }
+            }
+        }
+    }
+
+    // Pixels are kept to mid-tones so no intermediate pass clips; there the fused kernel must
+    // match applying the layers one after another, up to rounding.
+    @Test
+    void fusedKernelMatchesSequentialKernels() {
+        Random random = new Random(55L);
+        int[] sample = new int[SAMPLE_PIXELS];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = 0xFF000000 | (midTone(random) << 16) | (midTone(random) << 8) | midTone(random);
+        }
+
+        for (List<ColorMatrix> stack : STACKS) {
+            int[] sequential = sample.clone();
+            for (ColorMatrix matrix : stack) {
+                matrix.toKernel().apply(sequential, 0, sequential.length);
+            }
+            int[] fused = sample.clone();
+            fuse(stack).toKernel().apply(fused, 0, fused.length);
+
+            int worst = 0;
+            for (int i = 0; i < sample.length; i++) {
+                worst = Math.max(worst, channelDistance(sequential[i], fused[i]));
+            }
+            assertTrue(worst <= SEQUENTIAL_ROUNDING_LEVELS, "fused stack is off by " + worst + " levels");
+        }
+    }
+
+    @Test
+    void identityLeavesPixelsUnchanged() {
+        assertTrue(ColorMatrix.forFilter(FilterType.NONE, 1.0).isIdentity());
+        assertTrue(ColorMatrix.identity().then(ColorMatrix.identity()).isIdentity());
+
+        int[] pixels = {0xFF000000, 0xFFFFFFFF, 0x80123456, 0xFF7F7F7F};
+        int[] result = pixels.clone();
+        ColorMatrix.identity().toKernel().apply(result, 0, result.length);
+        for (int i = 0; i < pixels.length; i++) {
+            assertEquals(pixels[i], result[i]);
+        }
+    }
+
+    private static ColorMatrix fuse(List<ColorMatrix> stack) {
+        ColorMatrix fused = ColorMatrix.identity();
+        for (ColorMatrix matrix : stack) {
+            fused = fused.then(matrix);
+        }
+        return fused;
+    }
+
+    private static double[] transform(ColorMatrix matrix, double[] rgba) {
+        double[] out = new double[4];
+        for (int row = 0; row < 4; row++) {
+            double sum = matrix.get(row, 4);
+            for (int col = 0; col < 4; col++) {
+                sum += matrix.get(row, col) * rgba[col];
+            }
+            out[row] = sum;
+        }
+        return out;
+    }
+
+    private static int midTone(Random random) {
+        return 80 + random.nextInt(96);
+    }
+
+    private static int channelDistance(int a, int b) {
+        int worst = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            worst = Math.max(worst, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+        }
+        return worst;
+    }
+}
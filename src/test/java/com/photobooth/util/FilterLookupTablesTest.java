@@ -0,0 +1,53 @@
+package com.photobooth.util;
+
+import com.photobooth.model.Theme.FilterType;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterLookupTablesTest {
+
+    private static final int SAMPLE_PIXELS = 1_000_000;
+    private static final double[] SATURATION_INTENSITIES = {0.2, 0.5, 0.8, 1.0};
+
+    // The fixed-point saturation kernel may differ from an HSB round trip by rounding only.
+    @Test
+    void vibrantStaysWithinOneLevelOfHsbSaturation() {
+        Random random = new Random(6L);
+        int[] sample = new int[SAMPLE_PIXELS];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = random.nextInt();
+        }
+
+        for (double intensity : SATURATION_INTENSITIES) {
+            int[] actual = sample.clone();
+            FilterLookupTables.buildScalar(FilterType.VIBRANT, intensity).apply(actual, 0, actual.length);
+
+            int worst = 0;
+            for (int i = 0; i < sample.length; i++) {
+                int expected = hsbSaturate(sample[i], 1.0 + intensity);
+                worst = Math.max(worst, channelDistance(expected, actual[i]));
+                assertTrue((actual[i] & 0xFF000000) == (sample[i] & 0xFF000000), "alpha changed");
+            }
+            assertTrue(worst <= FilterLookupTables.SATURATION_TOLERANCE_LEVELS,
+                    "vibrant at intensity " + intensity + " is off by " + worst + " levels");
+        }
+    }
+
+    private static int hsbSaturate(int argb, double factor) {
+        float[] hsb = Color.RGBtoHSB((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, null);
+        float saturation = (float) Math.min(1.0, hsb[1] * factor);
+        return (argb & 0xFF000000) | (Color.HSBtoRGB(hsb[0], saturation, hsb[2]) & 0xFFFFFF);
+    }
+
+    private static int channelDistance(int a, int b) {
+        int distance = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            distance = Math.max(distance, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+        }
+        return distance;
+    }
+}
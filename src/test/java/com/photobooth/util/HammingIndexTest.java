@@ -0,0 +1,73 @@
+package com.photobooth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HammingIndexTest {
+
+    @Test
+    void findsTheNearestHashWithinDistance() {
+        HammingIndex<String> index = new HammingIndex<>();
+        long hash = 0x0123456789ABCDEFL;
+        index.add(hash, "original");
+        index.add(~hash, "inverse");
+
+        assertEquals("original", index.findNearest(hash, 0));
+        assertEquals("original", index.findNearest(hash ^ 0b1011, 4));
+        assertNull(index.findNearest(hash ^ 0b1011, 2));
+        assertEquals("inverse", index.findNearest(~hash ^ (1L << 63), 10));
+    }
+
+    // Flips spread across every chunk still leave one chunk within distance / 4 bits.
+    @Test
+    void matchesAgreeWithABruteForceScan() {
+        Random random = new Random(17L);
+        HammingIndex<Long> index = new HammingIndex<>();
+        List<Long> hashes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long hash = random.nextLong();
+            hashes.add(hash);
+            index.add(hash, hash);
+        }
+
+        for (long hash : hashes) {
+            long query = hash ^ (1L << random.nextInt(16)) ^ (1L << (16 + random.nextInt(16)))
+                    ^ (1L << (32 + random.nextInt(16))) ^ (1L << (48 + random.nextInt(16)));
+            Long expected = null;
+            int best = 9;
+            for (long candidate : hashes) {
+                int distance = Long.bitCount(candidate ^ query);
+                if (distance < best) {
+                    expected = candidate;
+                    best = distance;
+                }
+            }
+            assertEquals(expected, index.findNearest(query, 8));
+        }
+    }
+
+    @Test
+    void removeDropsOnlyTheMatchingValue() {
+        HammingIndex<String> index = new HammingIndex<>();
+        index.add(42L, "first");
+        index.add(42L, "second");
+        assertEquals(2, index.size());
+
+        assertTrue(index.remove(42L, "first"));
+        assertFalse(index.remove(42L, "first"));
+        assertEquals(1, index.size());
+        assertEquals("second", index.findNearest(42L, 0));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.findNearest(42L, 8));
+    }
+}
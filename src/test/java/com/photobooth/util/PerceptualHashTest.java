@@ -0,0 +1,56 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.photobooth.util.Constants.SIMILAR_PHOTO_HASH_DISTANCE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerceptualHashTest {
+
+    @Test
+    void rescaledImagesHashAlike() {
+        Image photo = scene(new Random(1L), 360, 240);
+        Image thumbnail = ImageUtils.resizeImage(photo, 160, 160);
+
+        long hash = PerceptualHash.dHash(photo);
+        assertTrue(PerceptualHash.isDistinctive(hash));
+        assertTrue(PerceptualHash.distance(hash, PerceptualHash.dHash(thumbnail)) <= SIMILAR_PHOTO_HASH_DISTANCE);
+    }
+
+    @Test
+    void differentImagesHashApart() {
+        long first = PerceptualHash.dHash(scene(new Random(1L), 360, 240));
+        long second = PerceptualHash.dHash(scene(new Random(2L), 360, 240));
+        assertTrue(PerceptualHash.distance(first, second) > SIMILAR_PHOTO_HASH_DISTANCE);
+    }
+
+    @Test
+    void blankImagesAreNotDistinctive() {
+        int[] grey = new int[64 * 48];
+        Arrays.fill(grey, 0xFF808080);
+        long hash = PerceptualHash.dHash(ImageUtils.toImage(grey, 64, 48));
+        assertEquals(0, hash);
+        assertFalse(PerceptualHash.isDistinctive(hash));
+    }
+
+    // Random blocks of flat colour, large enough that every grid cell differs from its neighbour.
+    private static Image scene(Random random, int width, int height) {
+        int[] blocks = new int[18 * 16];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                argb[y * width + x] = blocks[(y * 16 / height) * 18 + x * 18 / width];
+            }
+        }
+        return ImageUtils.toImage(argb, width, height);
+    }
+}
@@ -0,0 +1,57 @@
+package com.photobooth.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderSpillTest {
+
+    @TempDir
+    Path directory;
+
+    private Path previousDirectory;
+
+    @BeforeEach
+    void useTemporaryDirectory() {
+        previousDirectory = RenderSpill.getDirectory();
+        RenderSpill.setDirectory(directory);
+    }
+
+    @AfterEach
+    void restoreDirectory() {
+        RenderSpill.setDirectory(previousDirectory);
+    }
+
+    @Test
+    void discardDeletesTheFile() {
+        File file = RenderSpill.write("photo", ImageUtils.toImage(new int[8 * 8], 8, 8));
+        assertNotNull(file);
+        assertTrue(file.isFile());
+
+        RenderSpill.discard(file);
+        assertFalse(file.exists());
+    }
+
+    // Leftovers from an earlier run are removed; anything that is not a spill file is kept.
+    @Test
+    void cleanRemovesLeftoverRenders() throws IOException {
+        File leftover = RenderSpill.write("photo", ImageUtils.toImage(new int[8 * 8], 8, 8));
+        Path unrelated = Files.writeString(directory.resolve("notes.txt"), "keep");
+
+        RenderSpill.clean();
+
+        assertNotNull(leftover);
+        assertFalse(leftover.exists());
+        assertTrue(Files.exists(unrelated));
+    }
+}
@@ -0,0 +1,114 @@
+package com.photobooth.util;
+
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThumbnailDiskCacheTest {
+
+    // EXIF "rotate 90 clockwise".
+    private static final int ROTATED = 6;
+
+    @TempDir
+    Path directory;
+
+    private long budgetBytes;
+    private File source;
+
+    @BeforeEach
+    void useTemporaryCache() throws IOException {
+        budgetBytes = ThumbnailDiskCache.getBudgetBytes();
+        ThumbnailDiskCache.setDirectory(directory.resolve("cache"));
+        source = Files.write(directory.resolve("photo.jpg"), new byte[1024]).toFile();
+    }
+
+    @AfterEach
+    void restoreBudget() {
+        ThumbnailDiskCache.setBudgetBytes(budgetBytes);
+    }
+
+    @Test
+    void roundTripsSizeAndOrientation() {
+        ThumbnailDiskCache.put(source, image(64, 48, 0xFF), 4000, 3000, ROTATED);
+
+        ThumbnailDiskCache.Entry entry = ThumbnailDiskCache.get(source);
+        assertNotNull(entry);
+        assertEquals(4000, entry.getWidth());
+        assertEquals(3000, entry.getHeight());
+        assertEquals(ROTATED, entry.getOrientation());
+        assertEquals(64, (int) entry.getThumbnail().getWidth());
+        assertEquals(48, (int) entry.getThumbnail().getHeight());
+        assertTrue(ThumbnailDiskCache.getUsedBytes() > 0);
+    }
+
+    // Anything with transparency is kept as PNG, so its pixels come back exactly.
+    @Test
+    void keepsTranslucentThumbnailsLossless() {
+        Image thumbnail = image(32, 32, 0x80);
+        ThumbnailDiskCache.put(source, thumbnail, 32, 32, JpegExifReader.ORIENTATION_NORMAL);
+
+        ThumbnailDiskCache.Entry entry = ThumbnailDiskCache.get(source);
+        assertNotNull(entry);
+        assertArrayEquals(ImageUtils.readArgb(thumbnail), ImageUtils.readArgb(entry.getThumbnail()));
+    }
+
+    @Test
+    void missesOnceTheSourceChanges() throws IOException {
+        ThumbnailDiskCache.put(source, image(64, 48, 0xFF), 640, 480, JpegExifReader.ORIENTATION_NORMAL);
+        assertNotNull(ThumbnailDiskCache.get(source));
+
+        assertTrue(source.setLastModified(source.lastModified() - 60_000));
+        assertNull(ThumbnailDiskCache.get(source));
+
+        ThumbnailDiskCache.put(source, image(64, 48, 0xFF), 640, 480, JpegExifReader.ORIENTATION_NORMAL);
+        long modified = source.lastModified();
+        Files.write(source.toPath(), new byte[16], StandardOpenOption.APPEND);
+        assertTrue(source.setLastModified(modified));
+        assertNull(ThumbnailDiskCache.get(source));
+    }
+
+    @Test
+    void clearDropsEveryEntry() {
+        ThumbnailDiskCache.put(source, image(64, 48, 0xFF), 640, 480, JpegExifReader.ORIENTATION_NORMAL);
+        ThumbnailDiskCache.clear();
+
+        assertNull(ThumbnailDiskCache.get(source));
+        assertEquals(0, ThumbnailDiskCache.getUsedBytes());
+    }
+
+    @Test
+    void evictsDownToTheBudget() throws IOException {
+        for (int i = 0; i < 8; i++) {
+            File file = Files.write(directory.resolve("photo" + i + ".jpg"), new byte[i + 1]).toFile();
+            ThumbnailDiskCache.put(file, image(64, 48, 0xFF), 640, 480, JpegExifReader.ORIENTATION_NORMAL);
+        }
+        long used = ThumbnailDiskCache.getUsedBytes();
+
+        ThumbnailDiskCache.setBudgetBytes(used / 2);
+        assertTrue(ThumbnailDiskCache.getUsedBytes() <= used / 2);
+    }
+
+    private static Image image(int width, int height, int alpha) {
+        Random random = new Random(14L);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = (alpha << 24) | random.nextInt(0x1000000);
+        }
+        return ImageUtils.toImage(argb, width, height);
+    }
+}
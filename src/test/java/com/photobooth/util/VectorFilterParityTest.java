@@ -0,0 +1,92 @@
+package com.photobooth.util;
+
+import com.photobooth.model.Theme.FilterType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Every vector kernel must produce exactly the bytes of its scalar table kernel, including on
+// widths that leave a partial vector at the end of each row for the scalar tail to finish.
+class VectorFilterParityTest {
+
+    private static final int[] WIDTHS = {1, 3, 7, 15, 17, 31, 33, 63, 127, 641};
+    private static final int HEIGHT = 5;
+    private static final double[] INTENSITIES = {0.0, 0.05, 0.3, 0.5, 0.7, 0.95, 1.0};
+
+    @BeforeAll
+    static void requireVectorModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "jdk.incubator.vector is not resolved");
+    }
+
+    @Test
+    void vectorKernelsMatchScalarOverRandomPixels() {
+        Random random = new Random(20240611L);
+        int checked = 0;
+        for (FilterType filterType : FilterType.values()) {
+            if (!VectorFilterSupport.supports(filterType)) {
+                continue;
+            }
+            for (double intensity : intensities(random)) {
+                for (int width : WIDTHS) {
+                    int[] pixels = randomPixels(random, width * HEIGHT);
+                    assertParity(filterType, intensity, pixels, width);
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 0, "no vector kernels were checked");
+    }
+
+    @Test
+    void vectorKernelsMatchScalarOnEveryGrayLevel() {
+        int[] ramp = new int[256];
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = 0xFF000000 | (i << 16) | (i << 8) | i;
+        }
+        for (FilterType filterType : FilterType.values()) {
+            if (!VectorFilterSupport.supports(filterType)) {
+                continue;
+            }
+            for (double intensity : INTENSITIES) {
+                assertParity(filterType, intensity, ramp, ramp.length);
+            }
+        }
+    }
+
+    // Rows are filtered one range at a time, as a band split would, so every row ends in a tail.
+    private static void assertParity(FilterType filterType, double intensity, int[] pixels, int width) {
+        int[] expected = pixels.clone();
+        int[] actual = pixels.clone();
+        PixelKernel scalar = FilterLookupTables.buildScalar(filterType, intensity);
+        PixelKernel vector = VectorFilterSupport.kernelFor(filterType, intensity);
+        for (int from = 0; from < pixels.length; from += width) {
+            scalar.apply(expected, from, from + width);
+            vector.apply(actual, from, from + width);
+        }
+        assertArrayEquals(expected, actual,
+                () -> filterType + " at intensity " + intensity + ", width " + width);
+    }
+
+    private static double[] intensities(Random random) {
+        double[] values = new double[INTENSITIES.length + 4];
+        System.arraycopy(INTENSITIES, 0, values, 0, INTENSITIES.length);
+        for (int i = INTENSITIES.length; i < values.length; i++) {
+            values[i] = random.nextDouble();
+        }
+        return values;
+    }
+
+    private static int[] randomPixels(Random random, int count) {
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}